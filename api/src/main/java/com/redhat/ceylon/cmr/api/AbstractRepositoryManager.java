@@ -20,9 +20,15 @@ import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.redhat.ceylon.cmr.spi.Node;
 import com.redhat.ceylon.common.log.Logger;
@@ -39,11 +45,26 @@ public abstract class AbstractRepositoryManager implements RepositoryManager {
     protected final Logger log;
     protected final Overrides overrides;
 
+    private volatile ExecutorService batchExecutor; // null means batches are resolved sequentially
+
     public AbstractRepositoryManager(Logger log, Overrides overrides) {
         this.log = log;
         this.overrides=overrides;
     }
 
+    /**
+     * Resolve the modules of a batch concurrently on the given executor.
+     *
+     * @param batchExecutor the executor, or null to resolve batches sequentially
+     */
+    public void setBatchExecutor(ExecutorService batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
+
+    public ExecutorService getBatchExecutor() {
+        return batchExecutor;
+    }
+
     /**
      * Flatten.
      *
@@ -52,20 +73,29 @@ public abstract class AbstractRepositoryManager implements RepositoryManager {
      * @throws RepositoryException for any I/O error
      */
     public static File[] flatten(ArtifactResult result) throws RepositoryException {
+        return flatten(result, null);
+    }
+
+    /**
+     * Flatten, fetching the dependencies concurrently.
+     *
+     * @param result the artifact result
+     * @param executor the executor to fetch dependencies on, can be null
+     * @return all dependencies, each module only once, dependents before their dependencies
+     * @throws RepositoryException for any I/O error
+     * @see DependencyGraphResolver
+     */
+    public static File[] flatten(ArtifactResult result, ExecutorService executor) throws RepositoryException {
         if (result == null)
             return null;
 
-        List<File> files = new ArrayList<>();
-        recurse(files, result);
+        List<ArtifactResult> results = new DependencyGraphResolver(executor).resolve(result);
+        List<File> files = new ArrayList<>(results.size());
+        for (ArtifactResult ar : results)
+            files.add(ar.artifact());
         return files.toArray(new File[files.size()]);
     }
 
-    private static void recurse(final List<File> files, final ArtifactResult current) throws RepositoryException {
-        files.add(current.artifact());
-        for (ArtifactResult ar : current.dependencies())
-            recurse(files, ar);
-    }
-
     public File[] resolve(String name, String version) throws RepositoryException {
         final ArtifactContext context = new ArtifactContext(name, version);
         return resolve(context);
@@ -73,7 +103,7 @@ public abstract class AbstractRepositoryManager implements RepositoryManager {
 
     public File[] resolve(ArtifactContext context) throws RepositoryException {
         final ArtifactResult result = getArtifactResult(context);
-        return flatten(result);
+        return flatten(result, batchExecutor);
     }
 
     public File getArtifact(String name, String version) throws RepositoryException {
@@ -156,6 +186,100 @@ public abstract class AbstractRepositoryManager implements RepositoryManager {
         return results;
     }
 
+    public List<ArtifactBatchResult> getArtifactResultBatch(Collection<ArtifactContext> contexts) throws RepositoryException {
+        if (contexts == null)
+            throw new IllegalArgumentException("Null contexts!");
+
+        final List<ArtifactContext> lookups = new ArrayList<>(contexts);
+        final ArtifactBatchResult[] results = new ArtifactBatchResult[lookups.size()];
+        // group the lookups per module, each group keeps its own order
+        final Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < lookups.size(); i++) {
+            final ArtifactContext context = lookups.get(i);
+            if (context == null)
+                throw new IllegalArgumentException("Null context in batch at index " + i);
+            final String key = context.getName() + "/" + context.getVersion();
+            List<Integer> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(i);
+        }
+
+        final ExecutorService executor = batchExecutor;
+        if (executor == null || groups.size() < 2) {
+            for (List<Integer> group : groups.values()) {
+                getBatchGroup(lookups, group, results);
+            }
+        } else {
+            final List<Future<?>> futures = new ArrayList<>(groups.size());
+            try {
+                for (final List<Integer> group : groups.values()) {
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            getBatchGroup(lookups, group, results);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RepositoryException("Interrupted while resolving artifact batch", e);
+            } catch (ExecutionException e) {
+                // entries catch their own exceptions, so this is either an Error or a bug in the batch itself
+                final Throwable cause = e.getCause();
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new RepositoryException(cause);
+            } finally {
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void getBatchGroup(List<ArtifactContext> lookups, List<Integer> group, ArtifactBatchResult[] results) {
+        final boolean started = startBatchGroup();
+        try {
+            for (Integer i : group) {
+                results[i] = getBatchEntry(lookups.get(i));
+            }
+        } finally {
+            endBatchGroup(started);
+        }
+    }
+
+    /**
+     * Called before the lookups of a module's group of a batch, on the thread doing them.
+     *
+     * @return true if something was set up that {@link #endBatchGroup(boolean)} should undo
+     */
+    protected boolean startBatchGroup() {
+        return false;
+    }
+
+    /**
+     * Called after the lookups of a module's group of a batch, on the thread that did them.
+     *
+     * @param started what {@link #startBatchGroup()} returned
+     */
+    protected void endBatchGroup(boolean started) {
+    }
+
+    private ArtifactBatchResult getBatchEntry(ArtifactContext context) {
+        try {
+            return new ArtifactBatchResult(context, getArtifactResult(context));
+        } catch (Exception e) {
+            log.debug("Failed to resolve " + context + " in batch: " + e);
+            return new ArtifactBatchResult(context, e);
+        }
+    }
+
     public void putArtifact(String name, String version, InputStream content) throws RepositoryException {
         ArtifactContext context = new ArtifactContext();
         context.setName(name);
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.api;
+
+import com.redhat.ceylon.model.cmr.ArtifactResult;
+import com.redhat.ceylon.model.cmr.RepositoryException;
+
+/**
+ * Outcome of a single lookup of a batch.
+ * Either holds the artifact result (null if the artifact was not found),
+ * or the exception that made this particular lookup fail.
+ */
+public final class ArtifactBatchResult {
+    private final ArtifactContext context;
+    private final ArtifactResult result;
+    private final Exception error;
+
+    public ArtifactBatchResult(ArtifactContext context, ArtifactResult result) {
+        this(context, result, null);
+    }
+
+    public ArtifactBatchResult(ArtifactContext context, Exception error) {
+        this(context, null, error);
+    }
+
+    private ArtifactBatchResult(ArtifactContext context, ArtifactResult result, Exception error) {
+        if (context == null)
+            throw new IllegalArgumentException("Null context!");
+        this.context = context;
+        this.result = result;
+        this.error = error;
+    }
+
+    public ArtifactContext getContext() {
+        return context;
+    }
+
+    /**
+     * The artifact result.
+     *
+     * @return the result, null if not found or if the lookup failed
+     */
+    public ArtifactResult getResult() {
+        return result;
+    }
+
+    /**
+     * The error that made this lookup fail.
+     *
+     * @return the error, null if the lookup did not fail
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isFound() {
+        return result != null;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    /**
+     * The artifact result, re-throwing the lookup's error if there was one.
+     *
+     * @return the result, null if not found
+     */
+    public ArtifactResult getResultOrThrow() {
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
+        if (error != null)
+            throw new RepositoryException(error);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ArtifactBatchResult[" + context + " -> " + (error != null ? error : result) + "]";
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.redhat.ceylon.model.cmr.ArtifactResult;
+import com.redhat.ceylon.model.cmr.RepositoryException;
+
+/**
+ * Resolves the transitive dependency graph of an artifact.
+ *
+ * The graph is expanded breadth-first, one level at a time; all the modules
+ * of a level are fetched concurrently if an executor is given.
+ * Each module (name and version) is only fetched and expanded once,
+ * no matter how many paths lead to it.
+ *
+ * The result is ordered topologically, every module comes before
+ * its dependencies, so the root artifact is always first.
+ * Modules that are part of a dependency cycle are added in discovery order.
+ * Optional dependencies that cannot be found are left out.
+ */
+public class DependencyGraphResolver {
+
+    private final ExecutorService executor;
+
+    public DependencyGraphResolver() {
+        this(null);
+    }
+
+    /**
+     * @param executor the executor to fetch modules on, null means fetching in the calling thread
+     */
+    public DependencyGraphResolver(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Resolve the dependency graph.
+     *
+     * @param root the root artifact
+     * @return the root and all its dependencies, without duplicates
+     * @throws RepositoryException for any I/O error
+     */
+    public List<ArtifactResult> resolve(ArtifactResult root) throws RepositoryException {
+        if (root == null)
+            throw new IllegalArgumentException("Null root!");
+
+        final Map<String, Vertex> vertices = new LinkedHashMap<>();
+        final Vertex rootVertex = new Vertex(root, 0);
+        vertices.put(key(root), rootVertex);
+
+        List<Vertex> level = Collections.singletonList(rootVertex);
+        while (level.isEmpty() == false) {
+            final List<List<ArtifactResult>> expanded = expand(level);
+            final List<Vertex> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i++) {
+                final Vertex vertex = level.get(i);
+                for (ArtifactResult dependency : expanded.get(i)) {
+                    final String key = key(dependency);
+                    Vertex target = vertices.get(key);
+                    if (target == null) {
+                        target = new Vertex(dependency, vertices.size());
+                        vertices.put(key, target);
+                        next.add(target);
+                    }
+                    vertex.dependencies.add(target);
+                    target.pending++;
+                }
+            }
+            level = next;
+        }
+
+        return sort(new ArrayList<>(vertices.values()));
+    }
+
+    private List<List<ArtifactResult>> expand(List<Vertex> level) {
+        final List<List<ArtifactResult>> expanded = new ArrayList<>(level.size());
+        if (executor == null || level.size() < 2) {
+            for (Vertex vertex : level) {
+                expanded.add(expand(vertex));
+            }
+            return expanded;
+        }
+
+        final List<Future<List<ArtifactResult>>> futures = new ArrayList<>(level.size());
+        try {
+            for (final Vertex vertex : level) {
+                futures.add(executor.submit(new Callable<List<ArtifactResult>>() {
+                    public List<ArtifactResult> call() throws Exception {
+                        return expand(vertex);
+                    }
+                }));
+            }
+            for (Future<List<ArtifactResult>> future : futures) {
+                expanded.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while resolving dependencies", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RepositoryException(cause);
+        } finally {
+            for (Future<List<ArtifactResult>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return expanded;
+    }
+
+    private static List<ArtifactResult> expand(Vertex vertex) {
+        // this is what makes lazy results go and fetch their artifact
+        if (vertex.result.artifact() == null) {
+            vertex.missing = true;
+            return Collections.emptyList();
+        }
+        final List<ArtifactResult> dependencies = vertex.result.dependencies();
+        return (dependencies != null) ? dependencies : Collections.<ArtifactResult>emptyList();
+    }
+
+    private static List<ArtifactResult> sort(List<Vertex> vertices) {
+        final List<ArtifactResult> sorted = new ArrayList<>(vertices.size());
+        final PriorityQueue<Vertex> ready = new PriorityQueue<>(vertices.size(), new Comparator<Vertex>() {
+            public int compare(Vertex v1, Vertex v2) {
+                return v1.index - v2.index;
+            }
+        });
+        for (Vertex vertex : vertices) {
+            if (vertex.pending == 0)
+                ready.add(vertex);
+        }
+        int next = 0;
+        while (true) {
+            while (ready.isEmpty() == false) {
+                final Vertex vertex = ready.poll();
+                vertex.done = true;
+                if (vertex.missing == false)
+                    sorted.add(vertex.result);
+                for (Vertex dependency : vertex.dependencies) {
+                    if (--dependency.pending == 0)
+                        ready.add(dependency);
+                }
+            }
+            // whatever is left is stuck in a cycle, break it at the earliest discovered module
+            while (next < vertices.size() && vertices.get(next).done)
+                next++;
+            if (next == vertices.size())
+                break;
+            final Vertex stuck = vertices.get(next);
+            stuck.pending = 0;
+            ready.add(stuck);
+        }
+        return sorted;
+    }
+
+    private static String key(ArtifactResult result) {
+        return result.name() + "/" + result.version();
+    }
+
+    private static class Vertex {
+        private final ArtifactResult result;
+        private final int index; // discovery order
+        private final List<Vertex> dependencies = new ArrayList<>();
+        private int pending; // number of dependents not sorted yet
+        private volatile boolean missing;
+        private boolean done;
+
+        private Vertex(ArtifactResult result, int index) {
+            this.result = result;
+            this.index = index;
+        }
+    }
+}
@@ -17,9 +17,9 @@
 package com.redhat.ceylon.cmr.api;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.InputStream;
 
+import com.redhat.ceylon.cmr.spi.FileBackedInputStream;
 import com.redhat.ceylon.cmr.spi.Node;
 import com.redhat.ceylon.model.cmr.RepositoryException;
 
@@ -39,7 +39,7 @@ public class Helper {
 
     public static InputStream toInputStream(File file) throws RepositoryException {
         try {
-            return new FileInputStream(file);
+            return new FileBackedInputStream(file);
         } catch (Exception e) {
             throw new RepositoryException(e);
         }
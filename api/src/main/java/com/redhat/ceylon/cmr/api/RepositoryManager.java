@@ -19,6 +19,7 @@ package com.redhat.ceylon.cmr.api;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 
 import com.redhat.ceylon.model.cmr.ArtifactResult;
@@ -107,6 +108,19 @@ public interface RepositoryManager {
      */
     List<ArtifactResult> getArtifactResults(ArtifactContext context) throws RepositoryException;
 
+    /**
+     * Returns ArtifactResult objects for several lookups at once.
+     * Lookups for different modules may be done concurrently, while lookups
+     * for the same module are done one after the other, in the given order.
+     * A lookup failing with an exception does not abort the others, the exception is reported in its own entry.
+     * 
+     * @param contexts the artifact lookup infos
+     * @return one entry per context, in the same order as the contexts
+     * 
+     * @throws RepositoryException if the batch as a whole could not be processed
+     */
+    List<ArtifactBatchResult> getArtifactResultBatch(Collection<ArtifactContext> contexts) throws RepositoryException;
+
     /**
      * Publishes an artifact by name/version as an InputStream
      * 
@@ -131,6 +131,122 @@ public class RepositoryManagerBuilder {
         return this;
     }
 
+    /**
+     * Probe the repositories concurrently, using the given number of threads.
+     * Lookup order is still honored, the first repository in the list that has the artifact wins.
+     * The threads come from a pool shared by all the repository managers of this JVM.
+     *
+     * @param threads the number of lookup threads, 1 or less means sequential lookup
+     * @return this builder
+     */
+    public RepositoryManagerBuilder lookupThreads(int threads) {
+        getDelegate().lookupThreads(threads);
+        return this;
+    }
+
+    /**
+     * Resolve the different modules of a batch concurrently, using the given number of threads.
+     * The threads come from a pool shared by all the repository managers of this JVM.
+     *
+     * @param threads the number of batch threads, 1 or less means sequential resolution
+     * @return this builder
+     * @see RepositoryManager#getArtifactResultBatch(java.util.Collection)
+     */
+    public RepositoryManagerBuilder batchThreads(int threads) {
+        getDelegate().batchThreads(threads);
+        return this;
+    }
+
+    /**
+     * Trust the "missing artifact" markers in the cache for the given time.
+     * During that time artifacts that were not found in any remote repository
+     * are not looked up remotely again, unless the remote repositories change.
+     * Lookups can bypass this with {@link ArtifactContext#setIgnoreCache(boolean)}.
+     *
+     * @param millis the time to live in milliseconds, 0 or less disables it
+     * @return this builder
+     */
+    public RepositoryManagerBuilder missingArtifactTtl(long millis) {
+        getDelegate().missingArtifactTtl(millis);
+        return this;
+    }
+
+    /**
+     * Answer from what we already know, and refresh it from the remote repositories in the background:
+     * module completion and search results of remote repositories, and expired "missing artifact"
+     * markers, are served stale instead of waiting for the network.
+     *
+     * @param stale true to serve stale results while refreshing them
+     * @return this builder
+     */
+    public RepositoryManagerBuilder staleWhileRevalidate(boolean stale) {
+        getDelegate().staleWhileRevalidate(stale);
+        return this;
+    }
+
+    /**
+     * Put artifacts coming from local files as hard links to these files, when the file system allows it.
+     * Only safe if the source files are never modified in place.
+     *
+     * @param hardLinks use hard links
+     * @return this builder
+     */
+    public RepositoryManagerBuilder hardLinks(boolean hardLinks) {
+        getDelegate().hardLinks(hardLinks);
+        return this;
+    }
+
+    /**
+     * Keep a single copy of identical artifacts, in blobs named after their SHA1
+     * that the module tree links to, when the file system supports hard links.
+     *
+     * @param contentAddressed share content through blobs
+     * @return this builder
+     */
+    public RepositoryManagerBuilder contentAddressed(boolean contentAddressed) {
+        getDelegate().contentAddressed(contentAddressed);
+        return this;
+    }
+
+    /**
+     * Keep the cache within a quota, evicting the least recently used module versions first.
+     * Module versions that were used recently are never evicted.
+     *
+     * @param maxSize the maximum size of the cache in bytes, 0 or less for no limit
+     * @param maxAge  the time in milliseconds after which unused module versions are evicted, 0 or less for no limit
+     * @return this builder
+     */
+    public RepositoryManagerBuilder cacheQuota(long maxSize, long maxAge) {
+        getDelegate().cacheQuota(maxSize, maxAge);
+        return this;
+    }
+
+    /**
+     * Serve the small files of the cache from memory, within the given budget.
+     *
+     * @param maxBytes the memory budget in bytes, 0 or less to always read from disk
+     * @return this builder
+     */
+    public RepositoryManagerBuilder memoryCache(long maxBytes) {
+        getDelegate().memoryCache(maxBytes);
+        return this;
+    }
+
+    /**
+     * Reuse the responses of the Herd to completion and search queries, as IDEs repeat them constantly.
+     * The Herd's caching headers take precedence over the time to live. The cache is shared by all
+     * the repository managers of this JVM, as set up by the first one to ask for it.
+     *
+     * @param ttl        the time in milliseconds a response is reused, 0 or less not to ask for a cache
+     * @param maxBytes   the byte budget, 0 or less not to ask for a cache
+     * @param persistent also keep the responses in the cache repository, so they survive a restart
+     * @return this builder
+     */
+    public RepositoryManagerBuilder herdResponseCache(long ttl, long maxBytes, boolean persistent) {
+        getDelegate().herdResponseCache(ttl, maxBytes, persistent);
+        return this;
+    }
+
     public RepositoryManagerBuilder addRepository(CmrRepository external) {
         getDelegate().addRepository(external);
         return this;
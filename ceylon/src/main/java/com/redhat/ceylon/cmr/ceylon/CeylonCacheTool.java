@@ -0,0 +1,157 @@
+/*
+ * Copyright Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the authors tag. All rights reserved.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU General Public License version 2.
+ *
+ * This particular file is subject to the "Classpath" exception as provided in the
+ * LICENSE file that accompanied this code.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License,
+ * along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package com.redhat.ceylon.cmr.ceylon;
+
+import java.io.File;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import com.redhat.ceylon.cmr.impl.CacheCollector;
+import com.redhat.ceylon.cmr.impl.FileContentStore;
+import com.redhat.ceylon.cmr.impl.Sha1Ledger;
+import com.redhat.ceylon.common.FileUtil;
+import com.redhat.ceylon.common.Messages;
+import com.redhat.ceylon.common.config.Repositories;
+import com.redhat.ceylon.common.tool.Description;
+import com.redhat.ceylon.common.tool.Option;
+import com.redhat.ceylon.common.tool.OptionArgument;
+import com.redhat.ceylon.common.tool.Summary;
+import com.redhat.ceylon.common.tool.ToolError;
+import com.redhat.ceylon.common.tool.ToolUsageError;
+
+@Summary("Inspects and maintains the module cache")
+@Description("Shows the location of the module cache and how much it holds. " +
+        "With `--verify` every cached artifact that has a SHA1 signature is hashed again " +
+        "and checked against it, whatever the verification ledger says. " +
+        "With `--gc` the least recently used module versions are evicted until the cache " +
+        "fits within `--max-size`, and those unused for longer than `--max-age` are evicted as well. " +
+        "Module versions used within the last hour are never evicted.")
+public class CeylonCacheTool extends RepoUsingTool {
+
+    private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("com.redhat.ceylon.cmr.ceylon.resources.messages");
+
+    private boolean verify;
+    private boolean gc;
+    private long maxSize;
+    private int maxAge;
+
+    public CeylonCacheTool() {
+        super(BUNDLE);
+    }
+
+    @Option(longName="verify")
+    @Description("Re-verifies the SHA1 signatures of all the cached artifacts.")
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    @Option(longName="gc")
+    @Description("Evicts module versions from the cache to make it fit within its quota.")
+    public void setGc(boolean gc) {
+        this.gc = gc;
+    }
+
+    @OptionArgument(longName="max-size", argumentName="size")
+    @Description("The maximum size of the cache, in bytes or with a `k`, `m` or `g` suffix (default: no limit).")
+    public void setMaxSize(String maxSize) {
+        this.maxSize = parseSize(maxSize);
+    }
+
+    @OptionArgument(longName="max-age", argumentName="days")
+    @Description("The number of days after which unused module versions are evicted (default: no limit).")
+    public void setMaxAge(int maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    private long parseSize(String size) {
+        String digits = size.trim().toLowerCase();
+        long unit = 1;
+        if (digits.endsWith("k")) {
+            unit = 1024L;
+        } else if (digits.endsWith("m")) {
+            unit = 1024L * 1024;
+        } else if (digits.endsWith("g")) {
+            unit = 1024L * 1024 * 1024;
+        }
+        if (unit > 1) {
+            digits = digits.substring(0, digits.length() - 1);
+        }
+        try {
+            return Long.parseLong(digits) * unit;
+        } catch (NumberFormatException e) {
+            throw new ToolUsageError(Messages.msg(bundle, "cache.invalid.size", size));
+        }
+    }
+
+    @Override
+    public void run() throws Exception {
+        File cacheDir = getCacheDir();
+        if (!cacheDir.isDirectory()) {
+            throw new ToolUsageError(Messages.msg(bundle, "cache.not.found", cacheDir));
+        }
+        msg("cache.location", cacheDir).newline();
+        CacheCollector collector = new CacheCollector(cacheDir);
+        if (gc) {
+            collector.setMaxSize(maxSize);
+            collector.setMaxAge(maxAge * 24L * 60 * 60 * 1000);
+            CacheCollector.Usage usage = collector.collect();
+            msg("cache.gc.evicted", usage.getEvictedVersions(), usage.getFreed()).newline();
+            int blobs = new FileContentStore(cacheDir).collectBlobs();
+            if (blobs > 0) {
+                msg("cache.gc.blobs", blobs).newline();
+            }
+            msg("cache.usage", usage.getVersions(), usage.getSize()).newline();
+        } else {
+            CacheCollector.Usage usage = collector.getUsage();
+            msg("cache.usage", usage.getVersions(), usage.getSize()).newline();
+        }
+        if (verify) {
+            List<File> failed = new Sha1Ledger(cacheDir).reverifyAll();
+            if (failed.isEmpty()) {
+                msg("cache.verify.ok").newline();
+            } else {
+                for (File file : failed) {
+                    errorMsg("cache.verify.failed", file).errorNewline();
+                }
+                flush();
+                throw new VerificationError(Messages.msg(bundle, "cache.verify.failures", failed.size()));
+            }
+        }
+        flush();
+    }
+
+    protected File getCacheDir() {
+        String path = cacheRepo;
+        if (path == null) {
+            path = Repositories.get().getCacheRepository().getUrl();
+        }
+        return FileUtil.absoluteFile(FileUtil.applyCwd(cwd, new File(path)));
+    }
+
+    /**
+     * Some cached artifacts don't match their signature: the tool was used right, but it failed.
+     */
+    @SuppressWarnings("serial")
+    static class VerificationError extends ToolError {
+        VerificationError(String message) {
+            super(message);
+        }
+    }
+}
@@ -52,6 +52,15 @@ public class CeylonUtils {
         private boolean noSystemRepo;
         private boolean noDefRepos;
         private boolean jdkIncluded;
+        private int lookupThreads;
+        private long missingArtifactTtl;
+        private boolean staleWhileRevalidate;
+        private boolean hardLinks;
+        private boolean contentAddressed;
+        private long cacheMaxSize;
+        private long cacheMaxAge;
+        private long memoryCache;
+        private long outputCacheMaxAge;
         private Logger log;
         private String avoidRepository;
         private boolean skipRemoteRepositories;
@@ -289,6 +298,107 @@ public class CeylonUtils {
             return this;
         }
 
+        /**
+         * Sets the number of threads used to probe the repositories concurrently
+         * (defaults to 0, meaning the repositories are probed one after the other).
+         * The lookup order is honored either way
+         *
+         * @param threads The number of lookup threads
+         * @return This object for chaining method calls
+         */
+        public CeylonRepoManagerBuilder lookupThreads(int threads) {
+            this.lookupThreads = threads;
+            return this;
+        }
+
+        /**
+         * Sets for how long artifacts that could not be found in any of the remote
+         * repositories are remembered as missing, so they don't get looked up again
+         * (defaults to 0, meaning they are always looked up again)
+         *
+         * @param millis The time to live in milliseconds
+         * @return This object for chaining method calls
+         */
+        public CeylonRepoManagerBuilder missingArtifactTtl(long millis) {
+            this.missingArtifactTtl = millis;
+            return this;
+        }
+
+        /**
+         * Sets if results we already have are served while they get refreshed
+         * from the remote repositories in the background (defaults to false)
+         *
+         * @param stale Serve stale results or not
+         * @return This object for chaining method calls
+         */
+        public CeylonRepoManagerBuilder staleWhileRevalidate(boolean stale) {
+            this.staleWhileRevalidate = stale;
+            return this;
+        }
+
+        /**
+         * Sets if artifacts copied from local files are stored as hard links
+         * to these files, when the file system allows it (defaults to false)
+         *
+         * @param hardLinks Use hard links or not
+         * @return This object for chaining method calls
+         */
+        public CeylonRepoManagerBuilder hardLinks(boolean hardLinks) {
+            this.hardLinks = hardLinks;
+            return this;
+        }
+
+        /**
+         * Sets if identical artifacts are stored only once, in blobs named
+         * after their SHA1 that the repository links to (defaults to false)
+         *
+         * @param contentAddressed Share content or not
+         * @return This object for chaining method calls
+         */
+        public CeylonRepoManagerBuilder contentAddressed(boolean contentAddressed) {
+            this.contentAddressed = contentAddressed;
+            return this;
+        }
+
+        /**
+         * Sets the quota of the cache, the least recently used module versions
+         * get evicted to stay within it (defaults to 0 and 0, meaning no quota)
+         *
+         * @param maxSize The maximum size of the cache in bytes, 0 for no limit
+         * @param maxAge The time in milliseconds after which unused module versions are evicted, 0 for no limit
+         * @return This object for chaining method calls
+         */
+        public CeylonRepoManagerBuilder cacheQuota(long maxSize, long maxAge) {
+            this.cacheMaxSize = maxSize;
+            this.cacheMaxAge = maxAge;
+            return this;
+        }
+
+        /**
+         * Sets how much memory can be used to serve the small files of the cache
+         * without reading them from disk again (defaults to 0, meaning none)
+         *
+         * @param maxBytes The memory budget in bytes
+         * @return This object for chaining method calls
+         */
+        public CeylonRepoManagerBuilder memoryCache(long maxBytes) {
+            this.memoryCache = maxBytes;
+            return this;
+        }
+
+        /**
+         * Sets for how long artifacts of a remote output repository that were cached
+         * locally are used without checking them against the remote ones
+         * (defaults to 0, meaning they are checked every time)
+         *
+         * @param millis The max age in milliseconds
+         * @return This object for chaining method calls
+         */
+        public CeylonRepoManagerBuilder outputCacheMaxAge(long millis) {
+            this.outputCacheMaxAge = millis;
+            return this;
+        }
+
         /**
          * The logger to use, both for the builder itself as well as the
          * manager under construction. When not set <code>URLLogger</code> will be used
@@ -357,6 +467,27 @@ public class CeylonUtils {
             }
 
             final RepositoryManagerBuilder builder = new RepositoryManagerBuilder(root, log, isOffline(config), getTimeout(config), getProxy(config), getOverrides(config));
+            if (lookupThreads > 1) {
+                builder.lookupThreads(lookupThreads);
+            }
+            if (missingArtifactTtl > 0) {
+                builder.missingArtifactTtl(missingArtifactTtl);
+            }
+            if (staleWhileRevalidate) {
+                builder.staleWhileRevalidate(true);
+            }
+            if (hardLinks) {
+                builder.hardLinks(true);
+            }
+            if (contentAddressed) {
+                builder.contentAddressed(true);
+            }
+            if (cacheMaxSize > 0 || cacheMaxAge > 0) {
+                builder.cacheQuota(cacheMaxSize, cacheMaxAge);
+            }
+            if (memoryCache > 0) {
+                builder.memoryCache(memoryCache);
+            }
 
             // Now we add all the rest of the repositories in the order that they will be searched
             
@@ -530,7 +661,9 @@ public class CeylonUtils {
                 davContentStore.setUsername(user);
                 davContentStore.setPassword(password);
 
-                return new CachingRepositoryManager(davContentStore, cachingDir, log);
+                CachingRepositoryManager manager = new CachingRepositoryManager(davContentStore, cachingDir, log);
+                manager.setMaxAge(outputCacheMaxAge);
+                return manager;
             }
         }
 
@@ -57,7 +57,7 @@ public class ShaSigner {
                     +", no SHA-1 signature will be made");
             return null;
         }
-        byte[] buffer = new byte[1024];
+        byte[] buffer = new byte[8192];
      
         int read = 0; 
         try {
@@ -23,10 +23,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.redhat.ceylon.cmr.api.AbstractRepositoryManager;
 import com.redhat.ceylon.cmr.api.ArtifactContext;
@@ -34,6 +44,7 @@ import com.redhat.ceylon.cmr.api.CmrRepository;
 import com.redhat.ceylon.cmr.api.ModuleQuery;
 import com.redhat.ceylon.cmr.api.ModuleSearchResult;
 import com.redhat.ceylon.cmr.api.ModuleSearchResult.ModuleDetails;
+import com.redhat.ceylon.cmr.api.ModuleVersionDetails;
 import com.redhat.ceylon.cmr.api.ModuleVersionQuery;
 import com.redhat.ceylon.cmr.api.ModuleVersionResult;
 import com.redhat.ceylon.cmr.api.Overrides;
@@ -52,6 +63,7 @@ import com.redhat.ceylon.model.cmr.RepositoryException;
 public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryManager {
 
     protected static final String SHA1 = ".sha1";
+    protected static final String SHA256 = ".sha256";
     protected static final String LOCAL = ".local";
     protected static final String CACHED = ".cached";
     protected static final String ORIGIN = ".origin";
@@ -63,6 +75,24 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
     protected CmrRepository cache; // cache root
     protected boolean addCacheAsRoot; // do we treat cache as repo
 
+    private volatile ExecutorService lookupExecutor; // null means sequential lookup
+
+    private static final int MAX_STALE_RESULTS = 256;
+    private static final String COMPLETE_MODULES = "complete-modules";
+    private static final String COMPLETE_VERSIONS = "complete-versions";
+    private static final String SEARCH_MODULES = "search-modules";
+
+    private volatile boolean staleWhileRevalidate;
+    private volatile ExecutorService refreshExecutor;
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // last known completion and search results of the remote repositories
+    private final Map<String, Object> staleResults = Collections.synchronizedMap(new LinkedHashMap<String, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_STALE_RESULTS;
+        }
+    });
+
     public AbstractNodeRepositoryManager(Logger log, Overrides overrides) {
         super(log, overrides);
     }
@@ -75,6 +105,87 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
         }
     }
 
+    /**
+     * Probe the repositories concurrently on the given executor.
+     * The result still comes from the first repository (in lookup order) that has the artifact.
+     *
+     * Paged module searches also query all the repositories at once.
+     *
+     * @param lookupExecutor the executor, or null to go back to sequential lookup
+     */
+    public void setLookupExecutor(ExecutorService lookupExecutor) {
+        this.lookupExecutor = lookupExecutor;
+    }
+
+    public ExecutorService getLookupExecutor() {
+        return lookupExecutor;
+    }
+
+    /**
+     * Serve what we already know, and refresh it from the remote repositories in the background.
+     *
+     * Module completion and search answer with the last known result of each remote repository,
+     * and known missing artifacts stay missing past their TTL, while a background thread asks
+     * the remote repositories again so that the next lookup sees their current state.
+     * Only the first lookup of something still has to wait for the network.
+     *
+     * @param staleWhileRevalidate true to serve stale results
+     */
+    public void setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        if (staleWhileRevalidate == false)
+            staleResults.clear();
+    }
+
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * Run a refresh in the background, unless the same refresh is already pending.
+     *
+     * @param key     the refresh key
+     * @param refresh the refresh
+     */
+    protected void refreshInBackground(final String key, final Runnable refresh) {
+        if (refreshing.add(key) == false)
+            return;
+        try {
+            getRefreshExecutor().execute(new Runnable() {
+                public void run() {
+                    try {
+                        refresh.run();
+                    } catch (Exception e) {
+                        log.debug("Background refresh of " + key + " failed: " + e);
+                    } finally {
+                        refreshing.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private ExecutorService getRefreshExecutor() {
+        ExecutorService executor = refreshExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = refreshExecutor;
+                if (executor == null) {
+                    // a single thread, refreshes should not compete with the lookups
+                    executor = DaemonThreadFactory.newFixedThreadPool("ceylon-cmr-refresh", 1);
+                    refreshExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private boolean isServedStale(CmrRepository root) {
+        return staleWhileRevalidate && root.getRoot().isRemote();
+    }
+
     protected OpenNode getCache() {
         if (cache == null)
             return null;
@@ -270,6 +381,8 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
         } catch (IOException e) {
             throw new RepositoryException(e);
         }
+        if (cache instanceof AbstractRepository)
+            ((AbstractRepository) cache).artifactAdded(context);
         log.debug(" -> [done]");
     }
 
@@ -366,6 +479,8 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
                     throw new RepositoryException(e);
                 }
             }
+            if (cache instanceof AbstractRepository)
+                ((AbstractRepository) cache).artifactRemoved(context);
             log.debug(" -> [done]");
         } else {
             log.debug(" -> No such artifact: " + context);
@@ -448,20 +563,37 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
     }
 
     protected Node getFromAllRoots(ArtifactContext context, boolean addLeaf) {
-        LookupCaching.enable();
+        // a batch may have enabled it already for a whole group of lookups
+        final boolean started = startBatchGroup();
         try {
             return fromRepositories(getRepositoriesForContext(context), context, addLeaf);
         } finally {
-            LookupCaching.disable();
+            endBatchGroup(started);
         }
     }
 
+    @Override
+    protected boolean startBatchGroup() {
+        if (LookupCaching.isEnabled())
+            return false;
+        LookupCaching.enable();
+        return true;
+    }
+
+    @Override
+    protected void endBatchGroup(boolean started) {
+        if (started)
+            LookupCaching.disable();
+    }
+
     /**
      * Cache is only used for remote repos; see issue #47.
      */
     private Node fromRepositories(Iterable<CmrRepository> repositories, ArtifactContext context, boolean addLeaf) {
         log.debug("Looking for " + context);
 
+        final List<CmrRepository> candidates = new ArrayList<>();
+        Boolean knownMissing = null;
         for (CmrRepository repository : repositories) {
             if(context.isMaven() && !repository.isMaven()){
                 log.debug("  -> Skipping non-Maven repo for Maven lookup");
@@ -471,6 +603,24 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
                 log.debug("  -> Skipping Maven repo for non-Maven lookup");
                 continue;
             }
+            if (repository.getRoot().isRemote()) {
+                if (knownMissing == null)
+                    knownMissing = isKnownMissing(context);
+                if (knownMissing) {
+                    log.debug("  -> Skipping remote repo " + repository.getDisplayString() + ", artifact is known to be missing");
+                    continue;
+                }
+            }
+            candidates.add(repository);
+        }
+        routeToOrigin(candidates, context);
+
+        final ExecutorService executor = lookupExecutor;
+        if (executor != null && candidates.size() > 1) {
+            return fromRepositoriesConcurrently(executor, candidates, context, addLeaf);
+        }
+
+        for (CmrRepository repository : candidates) {
             Node child = fromRepository(repository, context, addLeaf);
             if (child != null)
                 return child;
@@ -482,6 +632,112 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
         return null;
     }
 
+    /**
+     * Probe all candidates at once, but wait for the results in lookup order,
+     * so the highest priority repository that has the artifact still wins.
+     * Once we have a hit, the lower priority probes are no longer needed and get cancelled.
+     *
+     * Only the first remote repository is asked for the artifact itself, the other ones
+     * are only asked whether they have it, so that we don't start downloads we throw away.
+     */
+    private Node fromRepositoriesConcurrently(ExecutorService executor, List<CmrRepository> candidates, final ArtifactContext context, final boolean addLeaf) {
+        final List<Future<Node>> probes = new ArrayList<>(candidates.size());
+        try {
+            boolean firstRemote = true;
+            for (final CmrRepository repository : candidates) {
+                final boolean headOnly = repository.getRoot().isRemote() && firstRemote == false;
+                if (repository.getRoot().isRemote())
+                    firstRemote = false;
+                probes.add(executor.submit(new Callable<Node>() {
+                    public Node call() throws Exception {
+                        // lookup caching is thread local, so each probe needs its own
+                        LookupCaching.enable();
+                        RemoteContentStore.setHeadOnly(headOnly);
+                        try {
+                            return fromRepository(repository, context, addLeaf);
+                        } finally {
+                            RemoteContentStore.setHeadOnly(false);
+                            LookupCaching.disable();
+                        }
+                    }
+                }));
+            }
+            for (Future<Node> probe : probes) {
+                Node child = probe.get();
+                if (child != null)
+                    return child;
+
+                log.debug("  -> Not Found");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while looking for " + context, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RepositoryException(cause);
+        } finally {
+            for (Future<Node> probe : probes) {
+                probe.cancel(true); // no-op for the ones that are done
+            }
+        }
+
+        log.debug(" -> Artifact " + context + " not found in any repository");
+        return null;
+    }
+
+    /**
+     * If the module was served by a remote repository before, make that repository
+     * the first remote one we try. Local repositories keep their precedence, they are cheap to probe.
+     */
+    private void routeToOrigin(List<CmrRepository> candidates, ArtifactContext context) {
+        if (context.getSearchRepository() != null)
+            return;
+        int firstRemote = -1;
+        int remotes = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.get(i).getRoot().isRemote()) {
+                if (firstRemote < 0)
+                    firstRemote = i;
+                remotes++;
+            }
+        }
+        if (remotes < 2)
+            return;
+        final CmrRepository origin = getOriginRepository(context);
+        if (origin == null)
+            return;
+        final int index = candidates.indexOf(origin);
+        if (index > firstRemote) {
+            candidates.remove(index);
+            candidates.add(firstRemote, origin);
+            log.debug("  -> Trying origin repo " + origin.getDisplayString() + " first");
+        }
+    }
+
+    /**
+     * The remote repository that served (other artifacts of) this module before.
+     *
+     * @param context the lookup context
+     * @return the origin repository, or null if unknown
+     */
+    protected CmrRepository getOriginRepository(ArtifactContext context) {
+        return null;
+    }
+
+    /**
+     * Do we already know that none of the remote repositories has this artifact?
+     *
+     * @param context the lookup context
+     * @return true if the remote repositories can be skipped
+     */
+    protected boolean isKnownMissing(ArtifactContext context) {
+        return false;
+    }
+
     protected Node fromRepository(CmrRepository repository, ArtifactContext context, boolean addLeaf) {
         log.debug(" Trying repository " + repository.getDisplayString());
         Node node = repository.findParent(context);
@@ -515,7 +771,11 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
     public ModuleSearchResult completeModules(ModuleQuery query) {
         ModuleSearchResult result = new ModuleSearchResult();
         for (CmrRepository root : getRepositories()) {
-            root.completeModules(query, result);
+            if (isServedStale(root)) {
+                mergeResult(result, getStaleResult(COMPLETE_MODULES, root, query));
+            } else {
+                root.completeModules(query, result);
+            }
         }
         return result;
     }
@@ -524,45 +784,132 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
     public ModuleVersionResult completeVersions(ModuleVersionQuery query) {
         ModuleVersionResult result = new ModuleVersionResult(query.getName());
         for (CmrRepository root : getRepositories()) {
-            root.completeVersions(query, result);
+            if (isServedStale(root)) {
+                ModuleVersionResult partial = (ModuleVersionResult) getStaleResult(COMPLETE_VERSIONS, root, query);
+                for (ModuleVersionDetails version : partial.getVersions().values()) {
+                    // like the repositories do, the first one to have a version wins
+                    result.addVersion(copyDetails(version));
+                }
+            } else {
+                root.completeVersions(query, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the last known result of a remote repository, and refresh it in the background.
+     * The first time we have to wait for the repository.
+     */
+    private Object getStaleResult(final String kind, final CmrRepository root, ModuleQuery query) {
+        final String key = kind + ":" + root.getDisplayString() + ":" + toKey(query);
+        final Object result = staleResults.get(key);
+        if (result == null)
+            return fetchResult(key, kind, root, query);
+        final ModuleQuery copy = copyQuery(query); // the caller can change the query later
+        refreshInBackground(key, new Runnable() {
+            public void run() {
+                fetchResult(key, kind, root, copy);
+            }
+        });
+        return result;
+    }
+
+    private Object fetchResult(String key, String kind, CmrRepository root, ModuleQuery query) {
+        final Object result;
+        if (COMPLETE_VERSIONS.equals(kind)) {
+            ModuleVersionResult versions = new ModuleVersionResult(query.getName());
+            root.completeVersions((ModuleVersionQuery) query, versions);
+            result = versions;
+        } else {
+            ModuleSearchResult modules = new ModuleSearchResult();
+            if (COMPLETE_MODULES.equals(kind))
+                root.completeModules(query, modules);
+            else
+                root.searchModules(query, modules);
+            result = modules;
         }
+        if (staleWhileRevalidate)
+            staleResults.put(key, result);
         return result;
     }
 
+    private static void mergeResult(ModuleSearchResult result, Object partial) {
+        ModuleSearchResult modules = (ModuleSearchResult) partial;
+        for (ModuleDetails details : modules.getResults()) {
+            ModuleDetails copy = new ModuleDetails(details.getName());
+            for (ModuleVersionDetails version : details.getVersions()) {
+                copy.getVersions().add(copyDetails(version));
+            }
+            result.addResult(details.getName(), copy);
+        }
+        if (modules.getHasMoreResults())
+            result.setHasMoreResults(true);
+    }
+
+    /**
+     * The stale results are kept for the next lookups, so callers only ever get copies of them.
+     */
+    private static ModuleVersionDetails copyDetails(ModuleVersionDetails details) {
+        ModuleVersionDetails copy = new ModuleVersionDetails(details.getModule(), details.getVersion(),
+                details.getDoc(), details.getLicense(), details.getAuthors(), details.getDependencies(),
+                details.getArtifactTypes(), details.isRemote(), details.getOrigin());
+        copy.getMembers().addAll(details.getMembers());
+        return copy;
+    }
+
+    private static String toKey(ModuleQuery query) {
+        StringBuilder key = new StringBuilder();
+        key.append(query.getName()).append('|').append(query.getType()).append('|').append(query.getRetrieval());
+        key.append('|').append(query.getStart()).append('|').append(query.getCount());
+        key.append('|').append(query.getBinaryMajor()).append('|').append(query.getBinaryMinor());
+        key.append('|').append(query.getMemberName()).append('|').append(query.isMemberSearchPackageOnly());
+        key.append('|').append(query.isMemberSearchExact());
+        if (query instanceof ModuleVersionQuery)
+            key.append('|').append(((ModuleVersionQuery) query).getVersion());
+        return key.toString();
+    }
+
+    private static ModuleQuery copyQuery(ModuleQuery query) {
+        ModuleQuery copy;
+        if (query instanceof ModuleVersionQuery)
+            copy = new ModuleVersionQuery(query.getName(), ((ModuleVersionQuery) query).getVersion(), query.getType());
+        else
+            copy = new ModuleQuery(query.getName(), query.getType());
+        copy.setRetrieval(query.getRetrieval());
+        copy.setStart(query.getStart());
+        copy.setCount(query.getCount());
+        copy.setBinaryMajor(query.getBinaryMajor());
+        copy.setBinaryMinor(query.getBinaryMinor());
+        copy.setMemberName(query.getMemberName());
+        copy.setMemberSearchPackageOnly(query.isMemberSearchPackageOnly());
+        copy.setMemberSearchExact(query.isMemberSearchExact());
+        return copy;
+    }
+
     @Override
     public ModuleSearchResult searchModules(ModuleQuery query) {
         if (!query.isPaging()) {
             // that's pretty simple
             ModuleSearchResult result = new ModuleSearchResult();
             for (CmrRepository root : getRepositories()) {
-                root.searchModules(query, result);
+                if (isServedStale(root)) {
+                    mergeResult(result, getStaleResult(SEARCH_MODULES, root, query));
+                } else {
+                    root.searchModules(query, result);
+                }
             }
             return result;
         } else {
             // we need to merge manually
             List<CmrRepository> repos = getRepositories();
-            ModuleSearchResult[] results = new ModuleSearchResult[repos.size()];
-            // keep an overall module name ordering
-            SortedSet<String> names = new TreeSet<>();
-            int i = 0;
             long[] pagingInfo = query.getPagingInfo();
             if (pagingInfo != null) {
                 // check its length
                 if (pagingInfo.length != repos.size())
                     throw new IllegalArgumentException("Paging info is not the same size as roots, it must have come from a different RepositoryManager");
             }
-            Long start = query.getStart();
-            for (CmrRepository root : repos) {
-                ModuleSearchResult result = new ModuleSearchResult();
-                // adapt the start index if required
-                if (pagingInfo != null)
-                    query.setStart(pagingInfo[i]);
-                root.searchModules(query, result);
-                results[i++] = result;
-                names.addAll(result.getModuleNames());
-            }
-            // restore the query start
-            query.setStart(start);
+            ModuleSearchResult[] results = searchPages(repos, query, pagingInfo);
             // now merge results
             ModuleSearchResult result = new ModuleSearchResult();
             long[] resultPagingInfo = new long[repos.size()];
@@ -571,30 +918,33 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
                 System.arraycopy(pagingInfo, 0, resultPagingInfo, 0, resultPagingInfo.length);
 
             result.setNextPagingInfo(resultPagingInfo);
-            i = 0;
-            for (String module : names) {
+            // each page is sorted by name, so the next module is the smallest of their next names
+            PriorityQueue<PageCursor> cursors = new PriorityQueue<>(Math.max(1, results.length));
+            for (int repo = 0; repo < results.length; repo++) {
+                PageCursor cursor = new PageCursor(repo, results[repo].getModuleNames().iterator());
+                if (cursor.next())
+                    cursors.add(cursor);
+            }
+            long added = 0;
+            while (cursors.isEmpty() == false) {
                 // stop if we exceeded the count
-                if (query.getCount() != null && i++ == query.getCount())
+                if (query.getCount() != null && added++ == query.getCount())
                     break;
-                // collect every module result for that name from the results
-                int repo = 0;
-                for (ModuleSearchResult resultPart : results) {
-                    ModuleDetails details = resultPart.getResult(module);
-                    // did we find anything in that repo?
-                    if (details == null) {
-                        repo++;
-                        continue;
-                    } else {
-                        // count one result for this repo
-                        resultPagingInfo[repo++]++;
-                    }
+                // collect every module result for that name, in repository order
+                String module = cursors.peek().name;
+                while (cursors.isEmpty() == false && cursors.peek().name.equals(module)) {
+                    PageCursor cursor = cursors.poll();
+                    // count one result for this repo
+                    resultPagingInfo[cursor.repo]++;
                     // merge it
-                    result.addResult(module, details);
+                    result.addResult(module, results[cursor.repo].getResult(module));
+                    if (cursor.next())
+                        cursors.add(cursor);
                 }
             }
             // see if there are any records left in next pages
-            int repo = 0;
-            for (ModuleSearchResult resultPart : results) {
+            for (int repo = 0; repo < results.length; repo++) {
+                ModuleSearchResult resultPart = results[repo];
                 // if we had more results in the first place then we must have another page
                 if (resultPart.getHasMoreResults()) {
                     result.setHasMoreResults(true);
@@ -611,9 +961,8 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
                     result.setHasMoreResults(true);
                     break;
                 }
-                repo++;
             }
-            // record where we started (i is one greater than the number of modules added)
+            // record where we started
             if (query.getStart() != null)
                 result.setStart(query.getStart());
             else
@@ -623,8 +972,91 @@ public abstract class AbstractNodeRepositoryManager extends AbstractRepositoryMa
         }
     }
     
+    /**
+     * Get a page of results from each repository, starting where its last page ended.
+     * With a lookup executor the repositories are all queried at once.
+     */
+    private ModuleSearchResult[] searchPages(List<CmrRepository> repos, ModuleQuery query, long[] pagingInfo) {
+        final ModuleSearchResult[] results = new ModuleSearchResult[repos.size()];
+        final List<FutureTask<ModuleSearchResult>> pages = new ArrayList<>(repos.size());
+        for (int i = 0; i < repos.size(); i++) {
+            final CmrRepository root = repos.get(i);
+            // each repository gets its own copy, with the start index adapted if required
+            final ModuleQuery page = copyQuery(query);
+            if (pagingInfo != null)
+                page.setStart(pagingInfo[i]);
+            pages.add(new FutureTask<>(new Callable<ModuleSearchResult>() {
+                public ModuleSearchResult call() throws Exception {
+                    ModuleSearchResult result = new ModuleSearchResult();
+                    root.searchModules(page, result);
+                    return result;
+                }
+            }));
+        }
+        final ExecutorService executor = lookupExecutor;
+        try {
+            if (executor != null && pages.size() > 1) {
+                for (FutureTask<ModuleSearchResult> page : pages) {
+                    try {
+                        executor.execute(page);
+                    } catch (RejectedExecutionException e) {
+                        page.run(); // executor is shutting down or full, do it ourselves
+                    }
+                }
+            } else {
+                for (FutureTask<ModuleSearchResult> page : pages) {
+                    page.run();
+                }
+            }
+            for (int i = 0; i < results.length; i++) {
+                results[i] = pages.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while searching for " + query, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RepositoryException(cause);
+        } finally {
+            for (FutureTask<ModuleSearchResult> page : pages) {
+                page.cancel(true); // no-op for the ones that are done
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The next module name of a repository's page.
+     */
+    private static class PageCursor implements Comparable<PageCursor> {
+        private final int repo;
+        private final Iterator<String> names;
+        private String name;
+
+        private PageCursor(int repo, Iterator<String> names) {
+            this.repo = repo;
+            this.names = names;
+        }
+
+        private boolean next() {
+            name = names.hasNext() ? names.next() : null;
+            return name != null;
+        }
+
+        public int compareTo(PageCursor other) {
+            int ret = name.compareTo(other.name);
+            // same module, the repository order decides
+            return (ret != 0) ? ret : Integer.compare(repo, other.repo);
+        }
+    }
+
     @Override
     public void refresh(boolean recurse) {
+        staleResults.clear();
         for (CmrRepository root : getRepositories()) {
             root.refresh(recurse);
         }
@@ -39,6 +39,7 @@ import com.redhat.ceylon.cmr.api.ModuleVersionQuery;
 import com.redhat.ceylon.cmr.api.ModuleVersionResult;
 import com.redhat.ceylon.cmr.api.Overrides;
 import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.spi.ContentStore;
 import com.redhat.ceylon.cmr.spi.Node;
 import com.redhat.ceylon.cmr.spi.OpenNode;
 import com.redhat.ceylon.common.Versions;
@@ -51,6 +52,8 @@ import com.redhat.ceylon.model.cmr.ArtifactResult;
  */
 public abstract class AbstractRepository implements CmrRepository {
 
+    public static final long DEFAULT_MODULE_NAMES_TTL = 5000L;
+
     private static final Comparator<? super Node> AlphabeticalNodeComparator = new Comparator<Node>() {
         @Override
         public int compare(Node a, Node b) {
@@ -59,6 +62,11 @@ public abstract class AbstractRepository implements CmrRepository {
     };
 
     private OpenNode root;
+    private volatile ModuleIndex moduleIndex;
+    private volatile ModuleNames moduleNames; // null until the first completion, empty if the layout doesn't allow it
+    private volatile boolean moduleNamesUsable;
+    private volatile long moduleNamesCollected;
+    private volatile long moduleNamesTtl = DEFAULT_MODULE_NAMES_TTL;
 
     public AbstractRepository(OpenNode root) {
         this.root = root;
@@ -152,6 +160,87 @@ public abstract class AbstractRepository implements CmrRepository {
     @Override
     public void refresh(boolean recurse) {
         root.refresh(recurse);
+        moduleNames = null;
+    }
+
+    /**
+     * Set for how long the module names used for completion are trusted.
+     * We keep them current as we put or remove artifacts, but other processes and repository managers
+     * sharing this repository don't tell us, so we collect them again once they are that old.
+     *
+     * @param millis the time to live in milliseconds, 0 or less to walk the tree at every completion
+     */
+    public void setModuleNamesTtl(long millis) {
+        this.moduleNamesTtl = millis;
+    }
+
+    public long getModuleNamesTtl() {
+        return moduleNamesTtl;
+    }
+
+    /**
+     * Get the persistent index of the module information of this repository's archives.
+     *
+     * @return the index, or null if this is not a file based repository
+     */
+    public ModuleIndex getModuleIndex() {
+        ModuleIndex index = moduleIndex;
+        if (index == null) {
+            final FileContentStore store = getFileContentStore();
+            if (store == null)
+                return null;
+            synchronized (this) {
+                index = moduleIndex;
+                if (index == null) {
+                    index = new ModuleIndex(store.getRoot());
+                    moduleIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private FileContentStore getFileContentStore() {
+        final ContentStore cs = root.getService(ContentStore.class);
+        return (cs instanceof FileContentStore) ? (FileContentStore) cs : null;
+    }
+
+    /**
+     * An artifact of this repository was added or replaced.
+     *
+     * @param context the artifact's context
+     */
+    public void artifactAdded(ArtifactContext context) {
+        forgetArtifacts(context);
+        final ModuleNames names = moduleNames;
+        if (names != null && RepositoryManager.DEFAULT_MODULE.equals(context.getName()) == false)
+            names.add(context.getName());
+    }
+
+    /**
+     * An artifact of this repository was removed.
+     *
+     * @param context the artifact's context
+     */
+    public void artifactRemoved(ArtifactContext context) {
+        forgetArtifacts(context);
+        final ModuleNames names = moduleNames;
+        if (names != null && names.contains(context.getName())) {
+            final Node node = NodeUtils.getNode(root, Arrays.asList(context.getName().split("\\.")));
+            if (node == null || isModuleFolder(node) == false)
+                names.remove(context.getName());
+        }
+    }
+
+    private void forgetArtifacts(ArtifactContext context) {
+        final ModuleIndex index = getModuleIndex();
+        final Node parent = (index != null) ? findParent(context) : null;
+        if (parent == null)
+            return;
+        final File dir = getFileContentStore().getFile(parent);
+        for (String name : getArtifactNames(context)) {
+            index.forget(new File(dir, name));
+        }
     }
 
     @Override
@@ -164,6 +253,11 @@ public abstract class AbstractRepository implements CmrRepository {
         }
         // we NEED the -1 limit here to get empty tokens
         String[] paths = query.getName().split("\\.", -1);
+        ModuleNames names = getModuleNames();
+        if (names != null) {
+            completeModulesFromNames(names, query, paths.length, result);
+            return;
+        }
         // find the right parent
         Node parent = root;
         for (int i = 0; i < paths.length - 1; i++) {
@@ -181,6 +275,116 @@ public abstract class AbstractRepository implements CmrRepository {
         }
     }
 
+    /*
+     * Gives the same results as walking the tree from the query's parent, without walking it: the candidates are
+     * the known module names starting with the query, and the walk would only reach a candidate if none of the
+     * folders between the query's parent and it is a module itself. Only known modules can be, so the other
+     * folders are not looked into, which keeps short queries cheap.
+     */
+    private void completeModulesFromNames(ModuleNames names, ModuleQuery query, int depth, ModuleSearchResult result) {
+        for (String moduleName : names.startingWith(query.getName())) {
+            String[] tokens = moduleName.split("\\.");
+            Node node = root;
+            boolean reached = true;
+            int end = -1; // of the folder's name in the module name
+            for (int i = 0; i < tokens.length && reached; i++) {
+                node = node.getChild(tokens[i]);
+                end += tokens[i].length() + 1;
+                if (node == null) {
+                    reached = false;
+                } else if (i >= depth - 1) {
+                    // below the query's parent, where the walk would look at it
+                    if (node.hasBinaries() || ArtifactContext.isDirectoryName(node.getLabel())) {
+                        reached = false;
+                    } else if (i < tokens.length - 1 && names.contains(moduleName.substring(0, end))
+                            && hasChildrenContainingArtifact(node, query, new Ret())) {
+                        // an enclosing module, the walk stops there
+                        reached = false;
+                    }
+                }
+            }
+            if (!reached)
+                continue;
+            Ret ret = new Ret();
+            if (hasChildrenContainingArtifact(node, query, ret) && ret.foundRightType) {
+                ModuleVersionDetails mvd = getSearchResult(moduleName, node, query);
+                if (mvd != null) {
+                    result.addResult(moduleName, mvd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the names of the modules of this repository, found once and kept current as artifacts are put or removed,
+     * then found again once older than their time to live.
+     *
+     * @return the names, or null if they can't be used for this repository
+     */
+    private ModuleNames getModuleNames() {
+        // remote trees are too costly to walk as a whole
+        if (root.isRemote() || moduleNamesTtl <= 0)
+            return null;
+        ModuleNames names = moduleNames;
+        if (names == null || isStale(moduleNamesCollected)) {
+            synchronized (this) {
+                names = moduleNames;
+                if (names == null || isStale(moduleNamesCollected)) {
+                    List<String> found = new ArrayList<String>();
+                    moduleNamesUsable = collectModuleNames(root, false, found);
+                    names = new ModuleNames(moduleNamesUsable ? found : Collections.<String>emptyList());
+                    moduleNamesCollected = System.currentTimeMillis();
+                    moduleNames = names;
+                }
+            }
+        }
+        return moduleNamesUsable ? names : null;
+    }
+
+    private boolean isStale(long collected) {
+        return System.currentTimeMillis() - collected > moduleNamesTtl;
+    }
+
+    /*
+     * Collects the paths of the folders that have a folder with files in them, i.e. the candidate modules.
+     * Returns false if a label outside of a module contains dots, since module names could not be mapped
+     * back to folders then.
+     */
+    private boolean collectModuleNames(Node parent, boolean parentIsModule, List<String> names) {
+        for (Node child : parent.getChildren()) {
+            // Winner of the less aptly-named method
+            if (child.hasBinaries() || ArtifactContext.isDirectoryName(child.getLabel()))
+                continue;
+            String label = child.getLabel();
+            if (parentIsModule && (label.contains(".") || hasFiles(child)))
+                continue; // a version folder
+            if (label.contains("."))
+                return false;
+            boolean isModule = isModuleFolder(child);
+            if (isModule)
+                names.add(toModuleName(child));
+            if (!collectModuleNames(child, isModule, names))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isModuleFolder(Node node) {
+        for (Node child : node.getChildren()) {
+            if (!child.hasBinaries() && hasFiles(child))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean hasFiles(Node node) {
+        for (Node child : node.getChildren()) {
+            if (child.hasBinaries())
+                return true;
+        }
+        return false;
+    }
+
     private void collectArtifacts(Node node, ModuleQuery lookup, ModuleSearchResult result) {
         // Winner of the less aptly-named method
         boolean isFolder = !node.hasBinaries();
@@ -461,16 +665,14 @@ public abstract class AbstractRepository implements CmrRepository {
                     if (file != null) {
                         ModuleInfoReader reader = getModuleInfoReader(suffix);
                         if (reader != null) {
-                            ModuleVersionDetails mvd2 = reader.readModuleInfo(name, version, file, memberName != null, getOverrides());
-                            Set<String> matchingMembers = null;
+                            ModuleVersionDetails mvd2 = readModuleInfo(reader, name, version, file, lookup);
                             if (memberName != null) {
-                                matchingMembers = matchMembers(mvd2, lookup);
-                                if (matchingMembers.isEmpty()) {
+                                if (mvd2 == null) {
                                     // We haven't found a matching member in the module so we
                                     // just continue to the next suffix/artifact if any
                                     continue;
                                 }
-                                mvd.getMembers().addAll(matchingMembers);
+                                mvd.getMembers().addAll(mvd2.getMembers());
                             }
                             foundInfo = true;
                             if (mvd2.getDoc() != null) {
@@ -647,15 +849,11 @@ public abstract class AbstractRepository implements CmrRepository {
                 if (file != null) {
                     ModuleInfoReader reader = getModuleInfoReader(artifact);
                     if (reader != null) {
-                        mvd = reader.readModuleInfo(moduleName, latestVersion, file, memberName != null, getOverrides());
-                        if (memberName != null) {
-                            Set<String> matchingMembers = matchMembers(mvd, query);
-                            if (matchingMembers.isEmpty()) {
-                                // We haven't found a matching member in the module so we
-                                // just continue to the next suffix/artifact if any
-                                return null;
-                            }
-                            mvd.setMembers(matchingMembers);
+                        mvd = readModuleInfo(reader, moduleName, latestVersion, file, query);
+                        if (memberName != null && mvd == null) {
+                            // We haven't found a matching member in the module so we
+                            // just continue to the next suffix/artifact if any
+                            return null;
                         }
                     }
                 }
@@ -684,6 +882,32 @@ public abstract class AbstractRepository implements CmrRepository {
         return mvd;
     }
 
+    /**
+     * Read the module information of an archive, with only the members matching the query if it's a member search.
+     *
+     * @return the information, or null if it's a member search and no member matches
+     */
+    private ModuleVersionDetails readModuleInfo(ModuleInfoReader reader, String name, String version, File file, ModuleQuery query) {
+        if (query.getMemberName() == null)
+            return reader.readModuleInfo(name, version, file, false, getOverrides());
+        Set<String> matchingMembers;
+        ModuleVersionDetails mvd;
+        if (reader instanceof ModuleIndex.IndexedReader) {
+            // look the members up in the index, the archive is only read the first time
+            matchingMembers = ((ModuleIndex.IndexedReader) reader).findMembers(name, version, file, query);
+            if (matchingMembers.isEmpty())
+                return null;
+            mvd = reader.readModuleInfo(name, version, file, false, getOverrides());
+        } else {
+            mvd = reader.readModuleInfo(name, version, file, true, getOverrides());
+            matchingMembers = (mvd != null) ? matchMembers(mvd, query) : null;
+        }
+        if (mvd == null || matchingMembers == null || matchingMembers.isEmpty())
+            return null;
+        mvd.setMembers(matchingMembers);
+        return mvd;
+    }
+
     private Set<String> matchMembers(ModuleVersionDetails mvd, ModuleQuery query) {
         return matchNames(mvd.getMembers(), query, false);
     }
@@ -691,29 +915,30 @@ public abstract class AbstractRepository implements CmrRepository {
     public static Set<String> matchNames(Set<String> names, ModuleQuery query, boolean namesArePackages) {
         // We're actually looking for a module containing a specific member
         SortedSet<String> found = new TreeSet<String>();
+        for (String name : names) {
+            String match = matchName(name, query, namesArePackages);
+            if (match != null) {
+                found.add(match);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Match a single name the way {@link #matchNames(Set, ModuleQuery, boolean)} does.
+     *
+     * @return what matched, the name or its package, or null if it doesn't match
+     */
+    static String matchName(String name, ModuleQuery query, boolean namesArePackages) {
         String member = query.getMemberName();
-        boolean matchPackagePart = !namesArePackages && query.isMemberSearchPackageOnly();
+        if (!namesArePackages && query.isMemberSearchPackageOnly()) {
+            name = packageName(name);
+        }
         if (query.isMemberSearchExact()) {
-            for (String name : names) {
-                if (matchPackagePart) {
-                    name = packageName(name);
-                }
-                if (name.equals(member)) {
-                    found.add(name);
-                }
-            }
+            return name.equals(member) ? name : null;
         } else {
-            member = member.toLowerCase();
-            for (String name : names) {
-                if (matchPackagePart) {
-                    name = packageName(name);
-                }
-                if (name.toLowerCase().contains(member)) {
-                    found.add(name);
-                }
-            }
+            return name.toLowerCase().contains(member.toLowerCase()) ? name : null;
         }
-        return found;
     }
 
     // Given a fully qualified member name return its package
@@ -749,15 +974,19 @@ public abstract class AbstractRepository implements CmrRepository {
     }
     
     private ModuleInfoReader getModuleInfoReader(String suffix) {
+        final ModuleInfoReader reader;
         if (ArtifactContext.CAR.equalsIgnoreCase(suffix)) {
-            return BytecodeUtils.INSTANCE;
+            reader = BytecodeUtils.INSTANCE;
         } else if (ArtifactContext.JAR.equalsIgnoreCase(suffix)) {
-            return JarUtils.INSTANCE;
+            reader = JarUtils.INSTANCE;
         } else if (ArtifactContext.JS.equalsIgnoreCase(suffix) || ArtifactContext.JS_MODEL.equalsIgnoreCase(suffix)) {
-            return JSUtils.INSTANCE;
+            reader = JSUtils.INSTANCE;
         } else {
             return null;
         }
+        // answer from the index of the archives when we have one
+        final ModuleIndex index = getModuleIndex();
+        return (index != null) ? index.wrap(reader) : reader;
     }
     
     protected Overrides getOverrides(){
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a single artifact, shared by all the threads and processes using the same directory.
+ *
+ * Threads of this JVM are serialized on a lock of their own for each artifact, since file locks are held
+ * on behalf of the whole JVM; where other processes share the directory, they are kept out with a lock
+ * on a hidden .lock file next to the artifact.
+ * Lock files are left in place, deleting them would let two processes lock different files.
+ */
+class ArtifactFileLock implements Closeable {
+
+    private static final String SUFFIX = ".lock";
+    private static final ConcurrentMap<String, PathLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final PathLock pathLock;
+    private final RandomAccessFile raf;
+    private final FileLock lock;
+
+    private ArtifactFileLock(PathLock pathLock, RandomAccessFile raf, FileLock lock) {
+        this.pathLock = pathLock;
+        this.raf = raf;
+        this.lock = lock;
+    }
+
+    /**
+     * Lock the artifact, waiting for whoever holds the lock to release it.
+     *
+     * @param artifact  the artifact
+     * @param processes also lock other processes out, with a lock file
+     * @return the lock, to be closed once done
+     * @throws IOException for any I/O error
+     */
+    static ArtifactFileLock acquire(File artifact, boolean processes) throws IOException {
+        final File file = getLockFile(artifact);
+        final PathLock pathLock = PathLock.lock(file.getAbsolutePath());
+        if (processes == false)
+            return new ArtifactFileLock(pathLock, null, null);
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                return new ArtifactFileLock(pathLock, raf, raf.getChannel().lock());
+            } catch (IOException | RuntimeException e) {
+                IOUtils.safeClose(raf);
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            pathLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Lock the artifact against the threads and processes sharing its directory,
+     * unless somebody holds the lock already.
+     *
+     * @param artifact the artifact
+     * @return the lock, to be closed once done, or null if somebody else holds it
+     * @throws IOException for any I/O error
+     */
+    static ArtifactFileLock tryAcquire(File artifact) throws IOException {
+        final File file = getLockFile(artifact);
+        final PathLock pathLock = PathLock.tryLock(file.getAbsolutePath());
+        if (pathLock == null)
+            return null;
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                final FileLock lock = raf.getChannel().tryLock();
+                if (lock != null)
+                    return new ArtifactFileLock(pathLock, raf, lock);
+            } catch (OverlappingFileLockException e) {
+                // this JVM holds it without going through us
+            } catch (IOException | RuntimeException e) {
+                IOUtils.safeClose(raf);
+                throw e;
+            }
+            IOUtils.safeClose(raf);
+        } catch (IOException | RuntimeException e) {
+            pathLock.unlock();
+            throw e;
+        }
+        pathLock.unlock();
+        return null;
+    }
+
+    static File getLockFile(File artifact) {
+        return new File(artifact.getParentFile(), "." + artifact.getName() + SUFFIX);
+    }
+
+    static boolean isLockFile(File file) {
+        final String name = file.getName();
+        return name.startsWith(".") && name.endsWith(SUFFIX);
+    }
+
+    public void close() throws IOException {
+        try {
+            if (lock != null)
+                lock.release();
+        } finally {
+            IOUtils.safeClose(raf);
+            pathLock.unlock();
+        }
+    }
+
+    /**
+     * The lock of this JVM's threads on a single lock file, dropped once nobody holds or waits for it.
+     */
+    private static final class PathLock {
+        private final String path;
+        private final ReentrantLock lock = new ReentrantLock();
+        private int users; // guarded by this
+        private boolean removed; // guarded by this
+
+        private PathLock(String path) {
+            this.path = path;
+        }
+
+        static PathLock lock(String path) {
+            final PathLock pathLock = use(path);
+            pathLock.lock.lock();
+            return pathLock;
+        }
+
+        static PathLock tryLock(String path) {
+            final PathLock pathLock = use(path);
+            if (pathLock.lock.tryLock())
+                return pathLock;
+            pathLock.unuse();
+            return null;
+        }
+
+        private static PathLock use(String path) {
+            while (true) {
+                PathLock pathLock = LOCKS.get(path);
+                if (pathLock == null) {
+                    final PathLock created = new PathLock(path);
+                    pathLock = LOCKS.putIfAbsent(path, created);
+                    if (pathLock == null)
+                        pathLock = created;
+                }
+                synchronized (pathLock) {
+                    // whoever removed it will not see us, use the next one
+                    if (pathLock.removed)
+                        continue;
+                    pathLock.users++;
+                }
+                return pathLock;
+            }
+        }
+
+        void unlock() {
+            lock.unlock();
+            unuse();
+        }
+
+        private synchronized void unuse() {
+            if (--users == 0) {
+                removed = true;
+                LOCKS.remove(path, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the module cache within a size and an age quota, evicting the least recently used module versions first.
+ *
+ * A module version is a directory of the cache with artifacts in it, it's always evicted as a whole,
+ * markers and extracted folders included, but for the lock files of its artifacts. Its last access is the time of its newest file, or the time
+ * it was last served from the cache, which is recorded in a hidden .accessed file.
+ * Module versions used more recently than the minimum age are never evicted, so that whatever
+ * a running resolve is using stays in place, and neither are those with an artifact somebody is publishing.
+ */
+public class CacheCollector {
+
+    public static final long DEFAULT_MIN_AGE = 60 * 60 * 1000L; // an hour
+
+    private static final String ACCESSED = ".accessed";
+    private static final long ACCESS_RESOLUTION = 60 * 60 * 1000L; // don't touch the marker more often than that
+
+    private final File root;
+    private long maxSize; // 0 means no limit
+    private long maxAge; // 0 means no limit
+    private long minAge = DEFAULT_MIN_AGE;
+
+    public CacheCollector(File root) {
+        if (root == null)
+            throw new IllegalArgumentException("Null root!");
+        this.root = root;
+    }
+
+    /**
+     * @param maxSize the maximum size of the cache in bytes, 0 or less for no limit
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = Math.max(maxSize, 0);
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxAge the time in milliseconds after which unused module versions are evicted, 0 or less for no limit
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = Math.max(maxAge, 0);
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * @param minAge the time in milliseconds during which used module versions are never evicted
+     */
+    public void setMinAge(long minAge) {
+        this.minAge = Math.max(minAge, 0);
+    }
+
+    public long getMinAge() {
+        return minAge;
+    }
+
+    /**
+     * Record that an artifact of the cache was used.
+     *
+     * @param artifact the artifact
+     */
+    static void recordAccess(File artifact) {
+        final File dir = artifact.getParentFile();
+        if (dir == null)
+            return;
+        final File marker = new File(dir, ACCESSED);
+        final long now = System.currentTimeMillis();
+        if (now - marker.lastModified() < ACCESS_RESOLUTION)
+            return;
+        try {
+            if (marker.exists() || marker.createNewFile())
+                marker.setLastModified(now);
+        } catch (IOException e) {
+            // read-only cache, nothing gets evicted then
+        }
+    }
+
+    static boolean isAccessMarker(File file) {
+        return ACCESSED.equals(file.getName());
+    }
+
+    /**
+     * Measure the cache.
+     *
+     * @return its usage
+     */
+    public Usage getUsage() {
+        final Usage usage = new Usage();
+        for (Entry entry : listEntries()) {
+            usage.versions++;
+            usage.size += entry.size;
+        }
+        return usage;
+    }
+
+    /**
+     * Evict module versions that are too old, then the least recently used ones until the cache fits its size.
+     *
+     * @return the usage once done, with what was evicted
+     */
+    public Usage collect() {
+        final List<Entry> entries = listEntries();
+        Collections.sort(entries, new Comparator<Entry>() {
+            public int compare(Entry e1, Entry e2) {
+                return Long.compare(e1.lastAccess, e2.lastAccess);
+            }
+        });
+        final Usage usage = new Usage();
+        for (Entry entry : entries) {
+            usage.versions++;
+            usage.size += entry.size;
+        }
+        final long now = System.currentTimeMillis();
+        for (Entry entry : entries) {
+            final long age = now - entry.lastAccess;
+            // the access marker can be behind by as much as its resolution
+            if (age < minAge + ACCESS_RESOLUTION)
+                break; // the rest is even more recent
+            final boolean tooOld = maxAge > 0 && age > maxAge;
+            final boolean tooBig = maxSize > 0 && usage.size > maxSize;
+            if (tooOld == false && tooBig == false)
+                continue;
+            if (evict(entry.dir)) {
+                usage.versions--;
+                usage.size -= entry.size;
+                usage.evictedVersions++;
+                usage.freed += entry.size;
+            }
+        }
+        return usage;
+    }
+
+    private boolean evict(File dir) {
+        if (isBusy(dir))
+            return false;
+        final File[] files = dir.listFiles();
+        if (files == null)
+            return false;
+        // always in the same order, other collectors lock them too
+        Arrays.sort(files);
+        final List<ArtifactFileLock> locks = new ArrayList<>();
+        try {
+            // leave it to whoever is publishing these artifacts, and keep them out while we evict
+            for (File file : files) {
+                if (file.isFile() && ArtifactFileLock.isLockFile(file) == false && ArtifactFileLock.getLockFile(file).exists()) {
+                    final ArtifactFileLock lock = ArtifactFileLock.tryAcquire(file);
+                    if (lock == null)
+                        return false;
+                    locks.add(lock);
+                }
+            }
+            // lock files stay, see ArtifactFileLock
+            for (File file : files) {
+                if (ArtifactFileLock.isLockFile(file) == false)
+                    IOUtils.deleteRecursively(file);
+            }
+        } catch (IOException e) {
+            return false;
+        } finally {
+            for (ArtifactFileLock lock : locks) {
+                IOUtils.safeClose(lock);
+            }
+        }
+        for (File file : files) {
+            if (ArtifactFileLock.isLockFile(file) == false && file.exists())
+                return false;
+        }
+        if (dir.delete() == false)
+            return true; // only its lock files are left
+        // and the module directories left empty
+        File parent = dir.getParentFile();
+        while (parent != null && parent.equals(root) == false && parent.delete()) {
+            parent = parent.getParentFile();
+        }
+        return true;
+    }
+
+    /**
+     * Is something being written in there, i.e. a staging or partial file that is not left over.
+     */
+    private boolean isBusy(File dir) {
+        final File[] files = dir.listFiles();
+        if (files == null)
+            return false;
+        final long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (IOUtils.isStagingFile(file) && now - file.lastModified() < minAge)
+                return true;
+        }
+        return false;
+    }
+
+    private List<Entry> listEntries() {
+        final List<Entry> entries = new ArrayList<>();
+        final File[] children = root.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                // never the root itself, and not its hidden folders (e.g. blobs)
+                if (child.isDirectory() && child.getName().startsWith(".") == false)
+                    listEntries(child, entries);
+            }
+        }
+        return entries;
+    }
+
+    private static void listEntries(File dir, List<Entry> entries) {
+        final File[] children = dir.listFiles();
+        if (children == null)
+            return;
+        for (File child : children) {
+            if (child.isFile() && child.getName().startsWith(".") == false) {
+                // it has artifacts, it's a module version
+                final Entry entry = new Entry(dir);
+                measure(dir, entry);
+                entries.add(entry);
+                return;
+            }
+        }
+        for (File child : children) {
+            if (child.isDirectory())
+                listEntries(child, entries);
+        }
+    }
+
+    private static void measure(File dir, Entry entry) {
+        final File[] children = dir.listFiles();
+        if (children == null)
+            return;
+        for (File child : children) {
+            if (child.isDirectory()) {
+                measure(child, entry);
+            } else {
+                entry.size += child.length();
+                entry.lastAccess = Math.max(entry.lastAccess, child.lastModified());
+            }
+        }
+    }
+
+    private static class Entry {
+        private final File dir;
+        private long size;
+        private long lastAccess;
+
+        private Entry(File dir) {
+            this.dir = dir;
+        }
+    }
+
+    /**
+     * Cache usage.
+     */
+    public static class Usage {
+        private int versions;
+        private long size;
+        private int evictedVersions;
+        private long freed;
+
+        /**
+         * @return the number of module versions in the cache
+         */
+        public int getVersions() {
+            return versions;
+        }
+
+        /**
+         * @return the size of the cache in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the number of evicted module versions
+         */
+        public int getEvictedVersions() {
+            return evictedVersions;
+        }
+
+        /**
+         * @return the number of bytes freed
+         */
+        public long getFreed() {
+            return freed;
+        }
+
+        @Override
+        public String toString() {
+            return "Usage[versions=" + versions + ", size=" + size + ", evicted=" + evictedVersions + ", freed=" + freed + "]";
+        }
+    }
+}
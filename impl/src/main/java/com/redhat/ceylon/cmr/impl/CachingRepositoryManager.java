@@ -18,12 +18,16 @@ package com.redhat.ceylon.cmr.impl;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
 
 import com.redhat.ceylon.cmr.api.ArtifactContext;
 import com.redhat.ceylon.cmr.api.CmrRepository;
 import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.spi.ContentStore;
 import com.redhat.ceylon.cmr.spi.Node;
 import com.redhat.ceylon.cmr.spi.StructureBuilder;
 import com.redhat.ceylon.common.log.Logger;
@@ -37,8 +41,13 @@ import com.redhat.ceylon.model.cmr.RepositoryException;
  */
 public class CachingRepositoryManager extends AbstractNodeRepositoryManager {
 
+    private static final String VALIDATORS = ".validators";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+
     private RepositoryManager caching;
     private final File cachingDir;
+    private volatile long maxAge; // how long cached artifacts are used without revalidation
 
     public CachingRepositoryManager(StructureBuilder root, File cachingDir, Logger log) {
         super(log, null);
@@ -62,35 +71,128 @@ public class CachingRepositoryManager extends AbstractNodeRepositoryManager {
         this.cachingDir = cachingDir;
     }
 
+    /**
+     * Set for how long a cached artifact is used without checking it against the remote one.
+     *
+     * @param millis the max age in milliseconds, 0 or less means checking on every access
+     */
+    public void setMaxAge(long millis) {
+        this.maxAge = millis;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
     protected ArtifactResult getArtifactResult(ArtifactContext context, Node node) throws RepositoryException {
         try {
             ArtifactResult result = caching.getArtifactResult(context);
-            if (result != null) {
-                boolean valid = false;
-                File file = result.artifact();
-                if (file.exists()) {
+            final File file = (result != null) ? result.artifact() : null;
+            final URLContentStore store = getURLContentStore(node);
+            if (file != null && file.exists()) {
+                final File validators = getValidatorsFile(file);
+                if (maxAge > 0 && validators.isFile() && System.currentTimeMillis() - validators.lastModified() < maxAge) {
+                    return result;
+                }
+                if (store == null) {
                     long lm = node.getLastModified();
-                    valid = (lm == -1 || lm < file.lastModified());
+                    if (lm == -1 || lm < file.lastModified()) {
+                        return result;
+                    }
+                } else {
+                    // without validators our copy's time is as good as any, it was taken after the remote one changed
+                    final Properties previous = readValidators(validators);
+                    final String etag = (previous != null) ? previous.getProperty(ETAG) : null;
+                    final long lastModified = (previous != null) ? getLastModified(previous) : file.lastModified();
+                    final URLContentStore.Revalidation revalidation = store.revalidate(node, etag, lastModified);
+                    if (revalidation == null) {
+                        return result;
+                    }
+                    if (revalidation.isNotModified()) {
+                        if (validators.isFile() == false || validators.setLastModified(System.currentTimeMillis()) == false) {
+                            writeValidators(validators, etag, lastModified);
+                        }
+                        return result;
+                    }
+                    return putArtifact(context, node, revalidation);
                 }
-                if (valid) {
-                    return result;
+            } else if (store != null) {
+                final URLContentStore.Revalidation revalidation = store.revalidate(node, null, -1);
+                if (revalidation != null && revalidation.isNotModified() == false) {
+                    return putArtifact(context, node, revalidation);
                 }
             }
 
-            final boolean previous = context.isForceOperation();
-            context.setForceOperation(true);
-            try {
-                context.setSuffixes(ArtifactContext.getSuffixFromNode(node)); // Make sure we'll have only one suffix
-                caching.putArtifact(context, node.getInputStream());
-            } finally {
-                context.setForceOperation(previous);
-            }
-            return caching.getArtifactResult(context);
+            return putArtifact(context, node, node.getInputStream());
         } catch (IOException e) {
             throw new RepositoryException(e);
         }
     }
 
+    private ArtifactResult putArtifact(ArtifactContext context, Node node, URLContentStore.Revalidation revalidation) throws IOException {
+        final ArtifactResult result = putArtifact(context, node, revalidation.getContent());
+        if (result != null && result.artifact() != null) {
+            writeValidators(getValidatorsFile(result.artifact()), revalidation.getETag(), revalidation.getLastModified());
+        }
+        return result;
+    }
+
+    private ArtifactResult putArtifact(ArtifactContext context, Node node, InputStream content) throws IOException {
+        final boolean previous = context.isForceOperation();
+        context.setForceOperation(true);
+        try {
+            context.setSuffixes(ArtifactContext.getSuffixFromNode(node)); // Make sure we'll have only one suffix
+            caching.putArtifact(context, content);
+        } finally {
+            context.setForceOperation(previous);
+            IOUtils.safeClose(content);
+        }
+        return caching.getArtifactResult(context);
+    }
+
+    private static URLContentStore getURLContentStore(Node node) {
+        final CmrRepository repository = NodeUtils.getRepository(node);
+        final ContentStore cs = (repository != null) ? repository.getRoot().getService(ContentStore.class) : null;
+        return (cs instanceof URLContentStore) ? (URLContentStore) cs : null;
+    }
+
+    private static File getValidatorsFile(File file) {
+        return new File(file.getParentFile(), "." + file.getName() + VALIDATORS);
+    }
+
+    private static Properties readValidators(File validators) {
+        if (validators.isFile() == false)
+            return null;
+        final Properties properties = new Properties();
+        try (InputStream is = new FileInputStream(validators)) {
+            properties.load(is);
+            return properties;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long getLastModified(Properties validators) {
+        try {
+            return Long.parseLong(validators.getProperty(LAST_MODIFIED, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void writeValidators(File validators, String etag, long lastModified) {
+        final Properties properties = new Properties();
+        if (etag != null)
+            properties.setProperty(ETAG, etag);
+        if (lastModified > 0)
+            properties.setProperty(LAST_MODIFIED, String.valueOf(lastModified));
+        try (OutputStream os = new FileOutputStream(validators)) {
+            properties.store(os, null);
+        } catch (IOException e) {
+            log.warning("Cannot store cache validators: " + validators);
+        }
+    }
+
     @Override
     public void putArtifact(ArtifactContext context, InputStream content) throws RepositoryException {
         caching.putArtifact(context, content); // first copy to local
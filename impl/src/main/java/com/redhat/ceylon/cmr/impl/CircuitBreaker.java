@@ -0,0 +1,192 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import com.redhat.ceylon.common.log.Logger;
+
+/**
+ * Keeps track of whether a remote repository can be reached, so that we stop paying
+ * a timeout for each of its requests once it's down.
+ *
+ * After a number of consecutive connection failures or timeouts the circuit opens and
+ * the repository is skipped. Once the cool-down is over the circuit is half-open: a single trial
+ * request goes through, the others are still skipped until it tells us how it went. If it
+ * gets an answer the circuit closes, if it fails it opens for another cool-down.
+ *
+ * The failure threshold and the cool-down are shared by all the repositories of this JVM;
+ * they are set with the {@value #PROP_FAILURE_THRESHOLD} and {@value #PROP_COOL_DOWN} system properties.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_COOL_DOWN = 60 * 1000L; // a minute
+
+    /** The number of consecutive failures that opens a circuit, 0 or less to never open it. */
+    public static final String PROP_FAILURE_THRESHOLD = "ceylon.cmr.circuit.threshold";
+    /** The time in milliseconds during which an open circuit skips its repository. */
+    public static final String PROP_COOL_DOWN = "ceylon.cmr.circuit.cooldown";
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static volatile int failureThreshold = (int) getProperty(PROP_FAILURE_THRESHOLD, DEFAULT_FAILURE_THRESHOLD);
+    private static volatile long coolDown = Math.max(0, getProperty(PROP_COOL_DOWN, DEFAULT_COOL_DOWN));
+
+    private final String name;
+    private final Logger log;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private Thread trial; // the thread sending the trial request of a half-open circuit, if any
+    private long trialStartedAt;
+
+    public CircuitBreaker(String name, Logger log) {
+        if (name == null)
+            throw new IllegalArgumentException("Null name!");
+        if (log == null)
+            throw new IllegalArgumentException("Null log!");
+        this.name = name;
+        this.log = log;
+    }
+
+    private static long getProperty(String key, long defaultValue) {
+        final String value = SecurityActions.getProperty(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Set when the circuits of all the repositories of this JVM open, and for how long,
+     * overriding the system properties.
+     *
+     * @param threshold the number of consecutive failures that opens a circuit, 0 or less to never open it
+     * @param millis    the time in milliseconds during which an open circuit skips its repository
+     */
+    public static void setDefaults(int threshold, long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("Cool-down must not be negative: " + millis);
+        failureThreshold = threshold;
+        coolDown = millis;
+    }
+
+    public static int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public static long getCoolDown() {
+        return coolDown;
+    }
+
+    /**
+     * Does this failure mean the repository cannot be reached,
+     * as opposed to a failure of that one request.
+     *
+     * @param e the failure
+     * @return true if the host is down, unknown or not answering
+     */
+    public static boolean isUnreachable(IOException e) {
+        return e instanceof ConnectException
+                || e instanceof SocketTimeoutException
+                || e instanceof NoRouteToHostException
+                || e instanceof UnknownHostException;
+    }
+
+    /**
+     * Can we send requests to the repository.
+     * If the circuit is half-open only the thread sending the trial request can.
+     *
+     * @return false if the circuit is open, or half-open with a trial request under way
+     */
+    public synchronized boolean allowRequest() {
+        final long now = System.currentTimeMillis();
+        if (state == State.CLOSED)
+            return true;
+        if (state == State.OPEN) {
+            if (now - openedAt < coolDown)
+                return false;
+            state = State.HALF_OPEN;
+            log.debug("Trying " + name + " again");
+        }
+        // a trial that never told us how it went doesn't keep the others out for more than a cool-down
+        if (trial != null && trial != Thread.currentThread() && now - trialStartedAt < coolDown)
+            return false;
+        if (trial != Thread.currentThread()) {
+            trial = Thread.currentThread();
+            trialStartedAt = now;
+        }
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED)
+            log.info("Repository " + name + " is reachable again");
+        state = State.CLOSED;
+        failures = 0;
+        trial = null;
+    }
+
+    /**
+     * Record a failed request; only the failures that mean the repository is unreachable count.
+     *
+     * @param e the failure
+     */
+    public synchronized void recordFailure(IOException e) {
+        if (isUnreachable(e) == false) {
+            // that one request failed, but the repository did answer it
+            if (state == State.HALF_OPEN)
+                recordSuccess();
+            return;
+        }
+        failures++;
+        trial = null;
+        final int threshold = failureThreshold;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && threshold > 0 && failures >= threshold)) {
+            if (state == State.CLOSED)
+                log.warning("Repository " + name + " is unreachable (" + e + "), skipping it for " + (coolDown / 1000) + "s");
+            else
+                log.debug("Repository " + name + " is still unreachable (" + e + ")");
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker[" + name + ", " + state + ", failures=" + failures + "]";
+    }
+}
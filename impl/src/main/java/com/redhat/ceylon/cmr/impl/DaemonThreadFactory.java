@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads, so that CMR worker pools never keep the JVM alive.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private static final Map<String, ThreadPoolExecutor> SHARED_POOLS = new HashMap<>(); // guarded by itself
+    private static final long SHARED_KEEP_ALIVE = 60; // seconds
+
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public DaemonThreadFactory(String prefix) {
+        if (prefix == null)
+            throw new IllegalArgumentException("Null prefix!");
+        this.prefix = prefix;
+    }
+
+    /**
+     * Create a fixed size pool of daemon threads.
+     *
+     * @param prefix  the thread name prefix
+     * @param threads the number of threads
+     * @return new executor
+     */
+    public static ExecutorService newFixedThreadPool(String prefix, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        return Executors.newFixedThreadPool(threads, new DaemonThreadFactory(prefix));
+    }
+
+    /**
+     * Get the pool of daemon threads shared by everybody in this JVM asking for the same prefix.
+     * It grows to the largest number of threads asked for, and its threads die once idle,
+     * so it never needs to be shut down; it must not be, either.
+     *
+     * @param prefix  the thread name prefix
+     * @param threads the number of threads needed
+     * @return the shared executor
+     */
+    public static ExecutorService sharedThreadPool(String prefix, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        synchronized (SHARED_POOLS) {
+            ThreadPoolExecutor pool = SHARED_POOLS.get(prefix);
+            if (pool == null) {
+                pool = new ThreadPoolExecutor(threads, threads, SHARED_KEEP_ALIVE, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(prefix));
+                pool.allowCoreThreadTimeOut(true);
+                SHARED_POOLS.put(prefix, pool);
+            } else if (pool.getMaximumPoolSize() < threads) {
+                pool.setMaximumPoolSize(threads);
+                pool.setCorePoolSize(threads);
+            }
+            return pool;
+        }
+    }
+
+    public Thread newThread(Runnable r) {
+        final Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -62,6 +62,10 @@ public class DefaultNode extends AbstractOpenNode {
         this.handle = handle;
     }
 
+    synchronized ContentHandle getHandle() {
+        return handle;
+    }
+
     public boolean isRemote() {
         return remote;
     }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the SHA1, and optionally the SHA-256, of the bytes read through it,
+ * so that content can be digested while it's being copied instead of read again afterwards.
+ *
+ * The digests are only meaningful once the stream was read to its end.
+ */
+public class DigestingInputStream extends FilterInputStream {
+
+    private final MessageDigest sha1;
+    private final MessageDigest sha256;
+
+    public DigestingInputStream(InputStream in) {
+        this(in, false);
+    }
+
+    public DigestingInputStream(InputStream in, boolean withSha256) {
+        super(in);
+        if (in == null)
+            throw new IllegalArgumentException("Null stream!");
+        this.sha1 = getDigest("SHA-1");
+        this.sha256 = withSha256 ? getDigest("SHA-256") : null;
+    }
+
+    private static MessageDigest getDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // can't happen, specs say both must be implemented
+            throw new IllegalStateException("Missing " + algorithm + " message digest", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+        if (b != -1) {
+            sha1.update((byte) b);
+            if (sha256 != null)
+                sha256.update((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int read = in.read(b, off, len);
+        if (read > 0) {
+            sha1.update(b, off, read);
+            if (sha256 != null)
+                sha256.update(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes must be digested as well
+        final byte[] buffer = new byte[(int) Math.min(8192, Math.max(n, 0))];
+        long skipped = 0;
+        while (skipped < n) {
+            final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1)
+                break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Mark/reset not supported");
+    }
+
+    /**
+     * @return the hex encoded SHA1 of what was read so far
+     */
+    public String getSha1() {
+        return IOUtils.toHexString(cloneDigest(sha1).digest());
+    }
+
+    /**
+     * @return the hex encoded SHA-256 of what was read so far, null if not computed
+     */
+    public String getSha256() {
+        return (sha256 != null) ? IOUtils.toHexString(cloneDigest(sha256).digest()) : null;
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
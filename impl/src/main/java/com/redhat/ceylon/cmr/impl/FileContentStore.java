@@ -17,19 +17,26 @@
 
 package com.redhat.ceylon.cmr.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
 
 import com.redhat.ceylon.cmr.spi.ContentHandle;
 import com.redhat.ceylon.cmr.spi.ContentOptions;
 import com.redhat.ceylon.cmr.spi.ContentStore;
+import com.redhat.ceylon.cmr.spi.FileBackedInputStream;
 import com.redhat.ceylon.cmr.spi.Node;
 import com.redhat.ceylon.cmr.spi.OpenNode;
 import com.redhat.ceylon.cmr.spi.StructureBuilder;
@@ -41,8 +48,16 @@ import com.redhat.ceylon.cmr.spi.StructureBuilder;
  */
 public class FileContentStore implements ContentStore, StructureBuilder {
 
+    static final String BLOBS = ".blobs";
+
+    private static final Logger log = Logger.getLogger(FileContentStore.class.getName());
+
     private final File root;
     private final ConcurrentMap<Node, File> cache = new ConcurrentHashMap<>();
+    private volatile boolean hardLinks;
+    private volatile boolean contentAddressed;
+    private volatile boolean shared;
+    private volatile HotContentCache hotCache; // null means always read from disk
 
     public FileContentStore(File root) {
         if (root == null)
@@ -50,6 +65,73 @@ public class FileContentStore implements ContentStore, StructureBuilder {
         this.root = root;
     }
 
+    /**
+     * Put content coming from local files as hard links to these files, when the file system allows it.
+     * Only safe if nobody modifies the source files in place afterwards.
+     * Ignored by content addressed stores, which share copies of the source files instead.
+     *
+     * @param hardLinks use hard links
+     */
+    public void setHardLinks(boolean hardLinks) {
+        this.hardLinks = hardLinks;
+    }
+
+    public boolean isHardLinks() {
+        return hardLinks;
+    }
+
+    /**
+     * Keep a single copy of each content, in a blob named after its SHA1, and put hard links
+     * to the blobs in the module tree. Identical artifacts then share their disk space,
+     * as do copies between stores of the same file system.
+     *
+     * Content written without hard link support is not shared, and blobs that are not linked
+     * from the tree anymore stay until {@link #collectBlobs()} is called.
+     *
+     * @param contentAddressed share content through blobs
+     */
+    public void setContentAddressed(boolean contentAddressed) {
+        this.contentAddressed = contentAddressed;
+    }
+
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+
+    /**
+     * Other processes publish to this store too, as they do to the module cache: publishing then
+     * locks them out as well, with a hidden lock file next to each artifact.
+     * Otherwise only the threads of this JVM are locked out, and no lock files are left behind.
+     *
+     * @param shared true if other processes publish to this store
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Serve the content of small files from memory.
+     *
+     * @param hotCache the memory cache, null to always read from disk
+     */
+    public void setHotCache(HotContentCache hotCache) {
+        this.hotCache = hotCache;
+    }
+
+    public HotContentCache getHotCache() {
+        return hotCache;
+    }
+
+    private void invalidate(File file) {
+        final HotContentCache hot = hotCache;
+        if (hot != null)
+            hot.invalidate(file);
+    }
+
     @Override
     public String toString() {
         return "FileContentStore: " + root;
@@ -60,6 +142,10 @@ public class FileContentStore implements ContentStore, StructureBuilder {
         return root.getPath();
     }
 
+    File getRoot() {
+        return root;
+    }
+
     File getFile(Node node) {
         if (node == null)
             throw new IllegalArgumentException("Null node");
@@ -110,6 +196,41 @@ public class FileContentStore implements ContentStore, StructureBuilder {
     }
 
     public ContentHandle putContent(Node node, InputStream stream, ContentOptions options) throws IOException {
+        return putContent(node, stream, options, null);
+    }
+
+    /**
+     * Put content, checking it before it becomes visible.
+     *
+     * The content is first written to a temporary file next to its final location,
+     * and only moved into place if the verifier accepts it. Only that move is done under
+     * the artifact's lock; if somebody else published the same content meanwhile, theirs is kept,
+     * unless the operation is forced.
+     *
+     * @param node     the node
+     * @param stream   the content
+     * @param options  the options
+     * @param verifier the verifier, can be null
+     * @return the content handle
+     * @throws IOException for any I/O error, or if the verifier rejects the content
+     */
+    public ContentHandle putContent(Node node, InputStream stream, ContentOptions options, ContentVerifier verifier) throws IOException {
+        return putContent(node, stream, options, verifier, null);
+    }
+
+    /**
+     * Put the content of a download that keeps itself in a partial file next to its final location.
+     * The stream is read to its end, and the partial file then becomes the staged content.
+     *
+     * @param node     the node
+     * @param stream   the content, reading from the download
+     * @param options  the options
+     * @param verifier the verifier, can be null
+     * @param download the download, or null if the content is not kept anywhere yet
+     * @return the content handle
+     * @throws IOException for any I/O error, or if the verifier rejects the content
+     */
+    ContentHandle putContent(Node node, InputStream stream, ContentOptions options, ContentVerifier verifier, PartialDownloadStream download) throws IOException {
         if (stream == null)
             throw new IllegalArgumentException("Null stream!");
         if (options == null)
@@ -127,10 +248,163 @@ public class FileContentStore implements ContentStore, StructureBuilder {
             file = new File(path + node.getLabel()); // just concat paths
         }
 
-        IOUtils.writeToFile(file, stream);
+        final File source = getSourceFile(stream);
+        // what is there now, to tell whether somebody else published it while we were staging ours
+        final long previousModified = file.lastModified();
+        final long previousSize = file.length();
+        // stage and verify without any lock, downloads can take long and must not hold anybody up
+        final File temp = IOUtils.createStagingFile(file);
+        File published = temp;
+        try {
+            DigestingInputStream digests = null;
+            if (download != null) {
+                // it is on the disk already, don't write it twice
+                if (contentAddressed) {
+                    stream = digests = new DigestingInputStream(stream);
+                }
+                drain(stream);
+                download.moveTo(temp);
+            } else if (source != null) {
+                // a blob must never be the source file itself, whoever changes that file in place would change
+                // every artifact sharing the blob: content addressed stores copy, and share the copy instead
+                IOUtils.copyFile(source, temp, hardLinks && contentAddressed == false);
+            } else {
+                if (contentAddressed) {
+                    stream = digests = new DigestingInputStream(stream);
+                }
+                IOUtils.copyStream(stream, new FileOutputStream(temp), false, true);
+            }
+            if (verifier != null) {
+                verifier.verify(temp);
+            }
+            if (contentAddressed) {
+                final String sha1 = (digests != null) ? digests.getSha1() : IOUtils.digest(temp, false).getSha1();
+                published = shareBlob(temp, sha1);
+            }
+            // other threads and processes sharing this store must wait for us to publish the content
+            try (ArtifactFileLock lock = ArtifactFileLock.acquire(file, shared)) {
+                if (options.forceOperation() || (file.lastModified() == previousModified && file.length() == previousSize)) {
+                    IOUtils.moveAtomically(published, file);
+                } else if (isSameContent(file, published)) {
+                    // somebody else published it meanwhile, having checked it as well as we did
+                    log.fine("Keeping the same content published meanwhile: " + file);
+                } else {
+                    log.fine("Replacing the other content published meanwhile: " + file);
+                    IOUtils.moveAtomically(published, file);
+                }
+                invalidate(file);
+            }
+        } finally {
+            IOUtils.deleteStagingFile(temp);
+            IOUtils.deleteStagingFile(published);
+        }
         return new FileContentHandle(node, file);
     }
 
+    private static boolean isSameContent(File file, File other) throws IOException {
+        if (file.exists() == false || file.length() != other.length())
+            return false;
+        return IOUtils.digest(file, false).getSha1().equals(IOUtils.digest(other, false).getSha1());
+    }
+
+    private static void drain(InputStream stream) throws IOException {
+        final byte[] bytes = new byte[8192];
+        while (stream.read(bytes) != -1) {
+            // the download keeps what we read
+        }
+    }
+
+    File getBlobFile(String sha1) {
+        return new File(new File(new File(root, BLOBS), sha1.substring(0, 2)), sha1);
+    }
+
+    /**
+     * Get a file with the staged content that shares the blob with that content,
+     * creating the blob from the staged file if there is none yet.
+     *
+     * @param temp the staged content
+     * @param sha1 its SHA1
+     * @return the file to move into place
+     * @throws IOException for any I/O error
+     */
+    private File shareBlob(File temp, String sha1) throws IOException {
+        final File blob = getBlobFile(sha1);
+        final File dir = blob.getParentFile();
+        if (dir.exists() == false && dir.mkdirs() == false && dir.isDirectory() == false)
+            throw new IOException("Cannot create dirs: " + dir);
+        try {
+            for (int i = 0; i < 3; i++) {
+                try {
+                    // new content, it becomes the blob
+                    Files.createLink(blob.toPath(), temp.toPath());
+                    return temp;
+                } catch (FileAlreadyExistsException e) {
+                    // known content, link to the existing blob instead
+                }
+                final File link = IOUtils.createStagingFile(temp);
+                try {
+                    Files.delete(link.toPath());
+                    Files.createLink(link.toPath(), blob.toPath());
+                    return link;
+                } catch (NoSuchFileException e) {
+                    // the blob was just collected, try again
+                    IOUtils.deleteStagingFile(link);
+                } catch (IOException | RuntimeException e) {
+                    IOUtils.deleteStagingFile(link);
+                    throw e;
+                }
+            }
+        } catch (FileSystemException | UnsupportedOperationException e) {
+            // no hard links here, or the blobs are on another file system: just don't share
+        }
+        return temp;
+    }
+
+    /**
+     * Delete the blobs nothing links to anymore.
+     * Only possible where the number of links to a file is known, i.e. on Unix file systems.
+     *
+     * @return the number of deleted blobs
+     * @throws IOException for any I/O error
+     */
+    public int collectBlobs() throws IOException {
+        final File[] dirs = new File(root, BLOBS).listFiles();
+        if (dirs == null)
+            return 0;
+        int collected = 0;
+        for (File dir : dirs) {
+            final File[] blobs = dir.listFiles();
+            if (blobs == null)
+                continue;
+            for (File blob : blobs) {
+                final Object links;
+                try {
+                    links = Files.getAttribute(blob.toPath(), "unix:nlink");
+                } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                    return collected;
+                }
+                // whoever links to a blob we delete keeps its content, it's just not shared anymore
+                if (links instanceof Integer && (Integer) links == 1 && blob.delete())
+                    collected++;
+            }
+            dir.delete(); // only if empty
+        }
+        return collected;
+    }
+
+    /**
+     * Get the local file behind the stream, if we can copy it instead of the stream.
+     */
+    static File getSourceFile(InputStream stream) throws IOException {
+        if (stream instanceof FileBackedInputStream) {
+            final FileBackedInputStream fbis = (FileBackedInputStream) stream;
+            // only if nobody read from it yet
+            if (fbis.getChannel().position() == 0 && fbis.getFile().isFile())
+                return fbis.getFile();
+        }
+        return null;
+    }
+
     public OpenNode createRoot() {
         return new RootNode(this, this);
     }
@@ -168,6 +442,12 @@ public class FileContentStore implements ContentStore, StructureBuilder {
         if (pf.exists()) {
             List<OpenNode> nodes = new ArrayList<>();
             for (File file : pf.listFiles()) {
+                if (ArtifactFileLock.isLockFile(file) || IOUtils.isStagingFile(file) || CacheCollector.isAccessMarker(file))
+                    continue;
+                // the ledger's name also prefixes its temporary file while it's being compacted
+                if (pf.equals(root) && (BLOBS.equals(file.getName()) || ModuleIndex.INDEX_FILE.equals(file.getName())
+                        || HerdResponseCache.CACHE_DIR.equals(file.getName()) || file.getName().startsWith(Sha1Ledger.LEDGER_FILE)))
+                    continue;
                 DefaultNode node = new DefaultNode(file.getName());
                 node.setHandle(createContentHandle(node, file));
                 nodes.add(node);
@@ -187,13 +467,29 @@ public class FileContentStore implements ContentStore, StructureBuilder {
         if (root.equals(file))
             return;
 
+        invalidate(file);
+
         File[] files = file.listFiles();
+        if (files != null && files.length > 0 && containsOnlyBookkeeping(files)) {
+            for (File lock : files) {
+                lock.delete();
+            }
+            files = file.listFiles();
+        }
         if ((files == null || files.length == 0) && (file.exists() == false || file.delete())) {
             cache.remove(node); // remove from cache, since probably not used anymore
             delete(file.getParentFile(), NodeUtils.firstParent(node));
         }
     }
 
+    private static boolean containsOnlyBookkeeping(File[] files) {
+        for (File file : files) {
+            if (ArtifactFileLock.isLockFile(file) == false && CacheCollector.isAccessMarker(file) == false)
+                return false;
+        }
+        return true;
+    }
+
     private class FileContentHandle implements ContentHandle {
 
         protected Node owner;
@@ -209,7 +505,13 @@ public class FileContentStore implements ContentStore, StructureBuilder {
         }
 
         public InputStream getBinariesAsStream() throws IOException {
-            return new FileInputStream(file);
+            final HotContentCache hot = hotCache;
+            if (hot != null) {
+                final byte[] content = hot.get(file);
+                if (content != null)
+                    return new ByteArrayInputStream(content);
+            }
+            return new FileBackedInputStream(file);
         }
 
         public File getContentAsFile() throws IOException {
@@ -255,6 +557,17 @@ public class FileContentStore implements ContentStore, StructureBuilder {
         }
     }
 
+    /**
+     * Checks content before it's moved to its final location.
+     */
+    public interface ContentVerifier {
+        /**
+         * @param staged the content, written to a temporary file
+         * @throws IOException to reject the content
+         */
+        void verify(File staged) throws IOException;
+    }
+
     @Override
     public boolean isOffline() {
         return true;
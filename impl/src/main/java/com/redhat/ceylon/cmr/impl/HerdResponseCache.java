@@ -0,0 +1,362 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the responses of the Herd's completion and search queries, which IDEs repeat at every keystroke.
+ *
+ * A response is served for its time to live, or for as long as the Herd's Cache-Control or Expires
+ * headers allow; responses the Herd asks us not to store are not kept. Once expired, a response with
+ * an ETag or a Last-Modified date is revalidated with a conditional request rather than fetched again.
+ * The least recently used responses are dropped to stay within the byte budget.
+ *
+ * With a directory, responses are also written there, so that they survive a restart.
+ */
+public class HerdResponseCache {
+
+    public static final String CACHE_DIR = ".herd-responses";
+
+    private static final int VERSION = 1;
+
+    private final long ttl;
+    private final long maxBytes;
+    private final File dir;
+    private final LinkedHashMap<String, Response> responses = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean loaded;
+    private long bytes;
+
+    /**
+     * @param ttl      the time in milliseconds a response is served without asking the Herd, unless it says otherwise
+     * @param maxBytes the byte budget
+     * @param dir      the directory to keep responses in across restarts, or null to only keep them in memory
+     */
+    public HerdResponseCache(long ttl, long maxBytes, File dir) {
+        if (ttl < 0)
+            throw new IllegalArgumentException("Time to live must not be negative: " + ttl);
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("Byte budget must be positive: " + maxBytes);
+        this.ttl = ttl;
+        this.maxBytes = maxBytes;
+        this.dir = dir;
+    }
+
+    /**
+     * Get a response, fresh or not.
+     *
+     * @param key the request key
+     * @return the response, or null if we have none
+     */
+    public synchronized Response get(String key) {
+        load();
+        return responses.get(key);
+    }
+
+    /**
+     * Keep the response to a request, as far as its headers allow it.
+     *
+     * @param key     the request key
+     * @param content the response body
+     * @param con     the connection, for its caching headers
+     */
+    public void put(String key, byte[] content, HttpURLConnection con) {
+        final String cacheControl = con.getHeaderField("Cache-Control");
+        if (content.length > maxBytes || hasDirective(cacheControl, "no-store"))
+            return;
+        final Response response = new Response(key, content, getExpiry(con, cacheControl),
+                con.getHeaderField("ETag"), con.getHeaderField("Last-Modified"));
+        synchronized (this) {
+            load();
+            final Response previous = responses.put(key, response);
+            if (previous != null)
+                bytes -= previous.content.length;
+            bytes += content.length;
+            evict();
+        }
+        write(response);
+    }
+
+    /**
+     * The Herd told us the response we have is still valid.
+     *
+     * @param response the response we have
+     * @param con      the connection that revalidated it, for its caching headers
+     * @return the response, with its new expiry
+     */
+    public Response revalidated(Response response, HttpURLConnection con) {
+        final String cacheControl = con.getHeaderField("Cache-Control");
+        final String etag = con.getHeaderField("ETag");
+        final String lastModified = con.getHeaderField("Last-Modified");
+        final Response fresh = new Response(response.key, response.content, getExpiry(con, cacheControl),
+                (etag != null) ? etag : response.etag, (lastModified != null) ? lastModified : response.lastModified);
+        synchronized (this) {
+            if (responses.get(fresh.key) == response)
+                responses.put(fresh.key, fresh);
+        }
+        write(fresh);
+        return fresh;
+    }
+
+    public synchronized void clear() {
+        responses.clear();
+        bytes = 0;
+        if (dir != null) {
+            final File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * @return the number of bytes in memory
+     */
+    public synchronized long getBytes() {
+        load();
+        return bytes;
+    }
+
+    /**
+     * @return the number of responses kept
+     */
+    public synchronized int getCount() {
+        load();
+        return responses.size();
+    }
+
+    private long getExpiry(HttpURLConnection con, String cacheControl) {
+        final long now = System.currentTimeMillis();
+        if (hasDirective(cacheControl, "no-cache"))
+            return now;
+        final Long maxAge = getMaxAge(cacheControl);
+        if (maxAge != null)
+            return now + maxAge * 1000;
+        final long expires = con.getHeaderFieldDate("Expires", -1);
+        if (expires >= 0)
+            return expires;
+        return now + ttl;
+    }
+
+    private static boolean hasDirective(String cacheControl, String name) {
+        if (cacheControl == null)
+            return false;
+        for (String directive : cacheControl.split(",")) {
+            if (directive.trim().equalsIgnoreCase(name))
+                return true;
+        }
+        return false;
+    }
+
+    private static Long getMaxAge(String cacheControl) {
+        if (cacheControl == null)
+            return null;
+        for (String directive : cacheControl.split(",")) {
+            final String[] parts = directive.trim().split("=", 2);
+            if (parts.length == 2 && parts[0].trim().equalsIgnoreCase("max-age")) {
+                try {
+                    return Math.max(0, Long.parseLong(parts[1].trim().replace("\"", "")));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, Response>> iterator = responses.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            final Response response = iterator.next().getValue();
+            bytes -= response.content.length;
+            iterator.remove();
+            if (dir != null)
+                getFile(response.key).delete();
+        }
+    }
+
+    /**
+     * Read the responses of the previous runs, the most recently written ones last,
+     * and drop the ones that are both expired and cannot be revalidated.
+     */
+    private void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (dir == null)
+            return;
+        final File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        final List<File> sorted = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(sorted, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        final long now = System.currentTimeMillis();
+        for (File file : sorted) {
+            final Response response = read(file);
+            if (response == null || (response.isFresh(now) == false && response.canRevalidate() == false)) {
+                file.delete();
+                continue;
+            }
+            final Response previous = responses.put(response.key, response);
+            if (previous != null)
+                bytes -= previous.content.length;
+            bytes += response.content.length;
+        }
+        evict();
+    }
+
+    private static Response read(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION)
+                return null;
+            final String key = in.readUTF();
+            final long expires = in.readLong();
+            final String etag = in.readUTF();
+            final String lastModified = in.readUTF();
+            final byte[] content = new byte[in.readInt()];
+            in.readFully(content);
+            return new Response(key, content, expires, etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified);
+        } catch (IOException e) {
+            return null; // unreadable, we'll fetch it again
+        }
+    }
+
+    private void write(Response response) {
+        if (dir == null)
+            return;
+        try {
+            Files.createDirectories(dir.toPath());
+            final File temp = File.createTempFile(CACHE_DIR, ".tmp", dir);
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                    out.writeInt(VERSION);
+                    out.writeUTF(response.key);
+                    out.writeLong(response.expires);
+                    out.writeUTF((response.etag != null) ? response.etag : "");
+                    out.writeUTF((response.lastModified != null) ? response.lastModified : "");
+                    out.writeInt(response.content.length);
+                    out.write(response.content);
+                }
+                IOUtils.moveAtomically(temp, getFile(response.key));
+            } finally {
+                temp.delete();
+            }
+        } catch (IOException ignored) {
+            // it's only a cache, we still have the response in memory
+        }
+    }
+
+    private File getFile(String key) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            final byte[] hash = digest.digest(key.getBytes("UTF-8"));
+            final StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return new File(dir, name.toString());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HerdResponseCache[responses=" + responses.size() + ", bytes=" + bytes + "/" + maxBytes + ", ttl=" + ttl + "]";
+    }
+
+    /**
+     * A response of the Herd, with what we need to know to revalidate it.
+     */
+    public static class Response {
+        private final String key;
+        private final byte[] content;
+        private final long expires;
+        private final String etag;
+        private final String lastModified;
+
+        private Response(String key, byte[] content, long expires, String etag, String lastModified) {
+            this.key = key;
+            this.content = content;
+            this.expires = expires;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public boolean isFresh(long now) {
+            return now < expires;
+        }
+
+        public boolean canRevalidate() {
+            return etag != null || lastModified != null;
+        }
+
+        /**
+         * Make the request conditional, so the Herd can answer 304 Not Modified if our response is still valid.
+         *
+         * @param con the connection, not connected yet
+         */
+        public void addConditionalHeaders(HttpURLConnection con) {
+            if (etag != null)
+                con.setRequestProperty("If-None-Match", etag);
+            if (lastModified != null)
+                con.setRequestProperty("If-Modified-Since", lastModified);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the content of small, often read files in memory, within a byte budget,
+ * evicting the least recently used first.
+ *
+ * A file is read again once its size or last modified time changes, so content
+ * replaced behind our back, e.g. by another process, is never served stale.
+ */
+public class HotContentCache {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<File, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxBytes the memory budget, files bigger than a sixteenth of it are never kept
+     */
+    public HotContentCache(long maxBytes) {
+        this(maxBytes, maxBytes / 16);
+    }
+
+    /**
+     * @param maxBytes      the memory budget
+     * @param maxEntryBytes the size of the biggest file kept
+     */
+    public HotContentCache(long maxBytes, long maxEntryBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("Memory budget must be positive: " + maxBytes);
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    /**
+     * Get the content of a file.
+     *
+     * @param file the file
+     * @return its content, or null if it's too big to be kept in memory
+     * @throws IOException for any I/O error
+     */
+    byte[] get(File file) throws IOException {
+        final long size = file.length();
+        if (size > maxEntryBytes)
+            return null;
+        final long lastModified = file.lastModified();
+        synchronized (this) {
+            final Entry entry = entries.get(file);
+            if (entry != null && entry.content.length == size && entry.lastModified == lastModified) {
+                hits++;
+                return entry.content;
+            }
+            misses++;
+        }
+        final byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length <= maxEntryBytes) {
+            synchronized (this) {
+                final Entry previous = entries.put(file, new Entry(content, lastModified));
+                if (previous != null)
+                    bytes -= previous.content.length;
+                bytes += content.length;
+                evict();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Forget a file, e.g. because we're replacing it.
+     *
+     * @param file the file
+     */
+    synchronized void invalidate(File file) {
+        final Entry entry = entries.remove(file);
+        if (entry != null)
+            bytes -= entry.content.length;
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<File, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().content.length;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the number of bytes in memory
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of files in memory
+     */
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HotContentCache[files=" + entries.size() + ", bytes=" + bytes + "/" + maxBytes
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    private static class Entry {
+        private final byte[] content;
+        private final long lastModified;
+
+        private Entry(byte[] content, long lastModified) {
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -33,6 +33,11 @@ import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Enumeration;
@@ -53,6 +58,7 @@ import com.redhat.ceylon.model.cmr.ArtifactResult;
 public class IOUtils {
 
     private static final Logger log = Logger.getLogger(IOUtils.class.getName());
+    private static final String PARTIAL = ".part";
     private static final char[] Hexadecimal = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
 
     /**
@@ -152,8 +158,125 @@ public class IOUtils {
         }
     }
 
+    /**
+     * Write the stream to a temporary file next to the target, then move it into place,
+     * so that nobody ever sees a partially written file.
+     *
+     * @param file        the target file
+     * @param inputStream the content, not closed
+     * @throws IOException for any I/O error
+     */
     static void writeToFile(File file, InputStream inputStream) throws IOException {
-        copyStream(inputStream, new FileOutputStream(file), false, true);
+        final File temp = createStagingFile(file);
+        try {
+            copyStream(inputStream, new FileOutputStream(temp), false, true);
+            moveAtomically(temp, file);
+        } finally {
+            deleteStagingFile(temp);
+        }
+    }
+
+    /**
+     * Copy a file without going through the heap: hard link it if allowed and if the
+     * file system supports it, otherwise let the OS transfer the bytes.
+     *
+     * @param source   the source
+     * @param target   the target, replaced if it exists
+     * @param hardLink can the target be a hard link to the source
+     * @throws IOException for any I/O error
+     */
+    static void copyFile(File source, File target, boolean hardLink) throws IOException {
+        if (hardLink && link(source, target))
+            return;
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0)
+                    break;
+                position += transferred;
+            }
+            if (position != size)
+                throw new IOException("Short copy of " + source + ": " + position + " of " + size + " bytes");
+        }
+    }
+
+    private static boolean link(File source, File target) {
+        try {
+            Files.deleteIfExists(target.toPath());
+            Files.createLink(target.toPath(), source.toPath());
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // e.g. not the same file system, or no hard links on this one
+            return false;
+        }
+    }
+
+    /**
+     * Digest a file.
+     *
+     * @param file       the file
+     * @param withSha256 compute the SHA-256 as well
+     * @return the stream that read the whole file, for its digests
+     * @throws IOException for any I/O error
+     */
+    static DigestingInputStream digest(File file, boolean withSha256) throws IOException {
+        try (DigestingInputStream digests = new DigestingInputStream(new FileInputStream(file), withSha256)) {
+            final byte[] buffer = new byte[8192];
+            while (digests.read(buffer) != -1) {
+                // the digests see every byte
+            }
+            return digests;
+        }
+    }
+
+    /**
+     * Create a temporary file in the target's directory, so it can later be atomically moved to the target.
+     *
+     * @param file the target file
+     * @return the temporary file
+     * @throws IOException for any I/O error
+     */
+    static File createStagingFile(File file) throws IOException {
+        return File.createTempFile("." + file.getName() + ".", ".tmp", file.getParentFile());
+    }
+
+    static boolean isStagingFile(File file) {
+        final String name = file.getName();
+        return name.startsWith(".") && (name.endsWith(".tmp") || name.endsWith(PARTIAL) || name.endsWith(PARTIAL + ".validator"));
+    }
+
+    /**
+     * Get the file where an interrupted download of the target is kept until it's resumed.
+     *
+     * @param file the target file
+     * @return the partial file
+     */
+    static File getPartialFile(File file) {
+        return new File(file.getParentFile(), "." + file.getName() + PARTIAL);
+    }
+
+    static void deleteStagingFile(File temp) {
+        if (temp.exists() && temp.delete() == false) {
+            temp.deleteOnExit();
+        }
+    }
+
+    /**
+     * Move the file, replacing the target, atomically if the file system supports it.
+     *
+     * @param source the source
+     * @param target the target
+     * @throws IOException for any I/O error
+     */
+    static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
     static String sha1(InputStream is) {
@@ -166,7 +289,7 @@ public class IOUtils {
             return null;
         }
 
-        final byte[] buffer = new byte[1024];
+        final byte[] buffer = new byte[8192];
         int read;
         try {
             while ((read = is.read(buffer)) != -1) {
@@ -345,7 +468,7 @@ public class IOUtils {
     public static File toTempFile(InputStream inputStream) throws IOException {
         try {
             final File tempFile = File.createTempFile("ceylon-ioutils-", ".tmp");
-            writeToFile(tempFile, inputStream);
+            copyStream(inputStream, new FileOutputStream(tempFile), false, true);
             return tempFile;
         } finally {
             safeClose(inputStream);
@@ -68,6 +68,8 @@ public class JDKRepository extends AbstractRepository {
             JDK_MODULES.add(module);
     }
 
+    private static final ModuleNames JDK_MODULE_NAMES = new ModuleNames(JDK_MODULES);
+
     public JDKRepository() {
         super(new JDKRoot());
     }
@@ -106,12 +108,10 @@ public class JDKRepository extends AbstractRepository {
             String name = query.getName();
             if (name == null)
                 name = "";
-            for (String module : JDK_MODULES) {
-                if (module.startsWith(name)) {
-                    ModuleVersionDetails mvd = getResult(module, query);
-                    if (mvd != null) {
-                        result.addResult(module, mvd);
-                    }
+            for (String module : JDK_MODULE_NAMES.startingWith(name)) {
+                ModuleVersionDetails mvd = getResult(module, query);
+                if (mvd != null) {
+                    result.addResult(module, mvd);
                 }
             }
         }
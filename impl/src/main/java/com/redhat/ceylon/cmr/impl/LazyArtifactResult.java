@@ -1,6 +1,7 @@
 package com.redhat.ceylon.cmr.impl;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 
 import com.redhat.ceylon.cmr.api.ArtifactContext;
@@ -14,6 +15,7 @@ import com.redhat.ceylon.model.cmr.RepositoryException;
 
 public class LazyArtifactResult extends AbstractArtifactResult {
     private ArtifactResult delegate;
+    private boolean resolved;
     private final ImportType importType;
     private RepositoryManager manager;
 
@@ -24,17 +26,20 @@ public class LazyArtifactResult extends AbstractArtifactResult {
     }
 
     private synchronized ArtifactResult getDelegate() {
-        if (delegate == null) {
+        if (resolved == false) {
             final ArtifactContext context = new ArtifactContext(name(), version());
             context.setThrowErrorIfMissing(importType() != ImportType.OPTIONAL);
             delegate = manager.getArtifactResult(context);
+            resolved = true;
         }
         return delegate;
     }
 
     @Override
     public Repository repository() {
-        return getDelegate().repository();
+        // optional dependencies are allowed to be missing
+        final ArtifactResult result = getDelegate();
+        return (result != null) ? result.repository() : null;
     }
     
     @Override
@@ -43,24 +48,29 @@ public class LazyArtifactResult extends AbstractArtifactResult {
     }
 
     public ArtifactResultType type() {
-        return getDelegate().type();
+        final ArtifactResult result = getDelegate();
+        return (result != null) ? result.type() : null;
     }
 
     protected File artifactInternal() throws RepositoryException {
-        return getDelegate().artifact();
+        final ArtifactResult result = getDelegate();
+        return (result != null) ? result.artifact() : null;
     }
 
     public List<ArtifactResult> dependencies() throws RepositoryException {
-        return getDelegate().dependencies();
+        final ArtifactResult result = getDelegate();
+        return (result != null) ? result.dependencies() : Collections.<ArtifactResult>emptyList();
     }
 
     @Override
     public String repositoryDisplayString() {
-        return getDelegate().repositoryDisplayString();
+        final ArtifactResult result = getDelegate();
+        return (result != null) ? result.repositoryDisplayString() : null;
     }
     
     @Override
     public PathFilter filter(){
-        return getDelegate().filter();
+        final ArtifactResult result = getDelegate();
+        return (result != null) ? result.filter() : null;
     }
 }
\ No newline at end of file
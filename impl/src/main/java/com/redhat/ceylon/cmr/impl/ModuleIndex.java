@@ -0,0 +1,625 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.ModuleDependencyInfo;
+import com.redhat.ceylon.cmr.api.ModuleQuery;
+import com.redhat.ceylon.cmr.api.ModuleVersionArtifact;
+import com.redhat.ceylon.cmr.api.ModuleVersionDetails;
+import com.redhat.ceylon.cmr.api.Overrides;
+
+/**
+ * Persistent index of what the archives of a file based repository say about their module:
+ * binary versions, descriptor metadata (doc, license, authors, dependencies, artifact types)
+ * and declared members, so that searches and completions don't need to open every archive
+ * again, in every process.
+ *
+ * Each entry holds the archive's path (relative to the index's root), size and last modified
+ * time, which also covers the descriptors next to it (module.xml, module.properties, -model.js).
+ * As long as those are unchanged the recorded information is trusted.
+ *
+ * Like the SHA1 ledger, the index file is append-only, the last entry for a path wins;
+ * it is compacted when loaded if it contains too many stale entries.
+ * Information read with overrides is never recorded, since it depends on them.
+ *
+ * Member searches are answered from an inverted index, from member name to the archives
+ * declaring it: each distinct name is matched once per query, however many archives declare it.
+ */
+public class ModuleIndex {
+
+    public static final String INDEX_FILE = ".module-index";
+
+    private static final String SEPARATOR = "\t";
+    private static final String LIST_SEPARATOR = ",";
+    private static final String PART_SEPARATOR = ":";
+    private static final String FIELD_SEPARATOR = " ";
+    private static final String NONE = "!"; // never produced by encode()
+    private static final String CHARSET = "UTF-8";
+    private static final long REMOVED = -1; // the size of forgotten archives
+
+    private final File root;
+    private final File index;
+    private volatile Map<String, Entry> entries;
+    // member name -> paths of the archives declaring it, built on the first member search
+    private Map<String, Set<String>> declarations;
+    // the matches of the last member search, path -> matching names, kept current as archives are indexed
+    private String matchesKey;
+    private ModuleQuery matchesQuery;
+    private Map<String, SortedSet<String>> matches;
+
+    public ModuleIndex(File root) {
+        if (root == null)
+            throw new IllegalArgumentException("Null root!");
+        this.root = root;
+        this.index = new File(root, INDEX_FILE);
+    }
+
+    /**
+     * Get a reader that answers from this index when it can, and from the given reader otherwise,
+     * recording what it reads.
+     *
+     * @param reader the reader of the archives
+     * @return the indexed reader
+     */
+    public IndexedReader wrap(ModuleInfoReader reader) {
+        return new IndexedReader(reader);
+    }
+
+    /**
+     * Reader of module information backed by the index.
+     */
+    public class IndexedReader implements ModuleInfoReader {
+        private final ModuleInfoReader reader;
+
+        private IndexedReader(ModuleInfoReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean matchesModuleInfo(String moduleName, String version, File moduleArchive, String query, Overrides overrides) {
+            if (overrides != null)
+                return reader.matchesModuleInfo(moduleName, version, moduleArchive, query, overrides);
+            final ModuleVersionDetails mvd = readModuleInfo(moduleName, version, moduleArchive, false, null);
+            return mvd != null && matches(mvd, query);
+        }
+
+        @Override
+        public ModuleVersionDetails readModuleInfo(String moduleName, String version, File moduleArchive, boolean includeMembers, Overrides overrides) {
+            if (overrides != null)
+                return reader.readModuleInfo(moduleName, version, moduleArchive, includeMembers, overrides);
+            Entry entry = getEntry(moduleArchive);
+            if (entry == null || entry.infoKnown == false || (includeMembers && entry.members == null))
+                entry = read(moduleName, version, moduleArchive, entry, includeMembers);
+            final ModuleVersionDetails mvd = copy(entry.info);
+            if (mvd != null && includeMembers)
+                mvd.setMembers(entry.members);
+            return mvd;
+        }
+
+        @Override
+        public int[] getBinaryVersions(String moduleName, String version, File moduleArchive) {
+            Entry entry = getEntry(moduleArchive);
+            if (entry == null || entry.binaryVersionsKnown == false) {
+                final int[] versions = reader.getBinaryVersions(moduleName, version, moduleArchive);
+                entry = ((entry != null) ? entry : newEntry(moduleArchive)).withBinaryVersions(versions);
+                record(entry);
+            }
+            return (entry.binaryVersions != null) ? entry.binaryVersions.clone() : null;
+        }
+
+        /**
+         * Find the members of an archive matching a member search, with the semantics of
+         * {@link AbstractRepository#matchNames(Set, ModuleQuery, boolean)}.
+         *
+         * @param moduleName    the module
+         * @param version       its version
+         * @param moduleArchive the archive
+         * @param query         the member search
+         * @return the matching names, empty if none matches
+         */
+        public SortedSet<String> findMembers(String moduleName, String version, File moduleArchive, ModuleQuery query) {
+            Entry entry = getEntry(moduleArchive);
+            if (entry == null || entry.members == null)
+                entry = read(moduleName, version, moduleArchive, entry, true);
+            return findMatches(query, entry.path);
+        }
+
+        private Entry read(String moduleName, String version, File moduleArchive, Entry entry, boolean includeMembers) {
+            final ModuleVersionDetails mvd = reader.readModuleInfo(moduleName, version, moduleArchive, includeMembers, null);
+            entry = ((entry != null) ? entry : newEntry(moduleArchive)).withInfo(mvd);
+            if (includeMembers)
+                entry = entry.withMembers((mvd != null) ? mvd.getMembers() : Collections.<String>emptySet());
+            record(entry);
+            return entry;
+        }
+    }
+
+    private Entry newEntry(File archive) {
+        return Entry.newEntry(toPath(archive), getSize(archive), getLastModified(archive));
+    }
+
+    /**
+     * Forget an archive, e.g. because it was replaced or removed.
+     *
+     * @param archive the archive
+     */
+    public synchronized void forget(File archive) {
+        final String path = toPath(archive);
+        final Entry previous = getEntries().remove(path);
+        if (previous != null) {
+            undeclare(previous);
+            append(Entry.newEntry(path, REMOVED, 0));
+        }
+    }
+
+    /**
+     * @return the number of archives in the index
+     */
+    public int size() {
+        return getEntries().size();
+    }
+
+    private Entry getEntry(File archive) {
+        final Entry entry = getEntries().get(toPath(archive));
+        if (entry != null && entry.size == getSize(archive) && entry.lastModified == getLastModified(archive))
+            return entry;
+        return null;
+    }
+
+    private synchronized void record(Entry entry) {
+        final Entry previous = getEntries().put(entry.path, entry);
+        if (entry.equals(previous))
+            return;
+        if (previous != null)
+            undeclare(previous);
+        declare(entry);
+        append(entry);
+    }
+
+    private synchronized void declare(Entry entry) {
+        if (declarations == null || entry.members == null)
+            return;
+        for (String member : entry.members) {
+            Set<String> paths = declarations.get(member);
+            if (paths == null) {
+                paths = new HashSet<>();
+                declarations.put(member, paths);
+            }
+            paths.add(entry.path);
+            if (matches != null)
+                addMatch(member, Collections.singleton(entry.path));
+        }
+    }
+
+    private synchronized void undeclare(Entry entry) {
+        if (declarations == null || entry.members == null)
+            return;
+        for (String member : entry.members) {
+            final Set<String> paths = declarations.get(member);
+            if (paths != null && paths.remove(entry.path) && paths.isEmpty())
+                declarations.remove(member);
+        }
+        if (matches != null)
+            matches.remove(entry.path);
+    }
+
+    private synchronized SortedSet<String> findMatches(ModuleQuery query, String path) {
+        final String key = query.getMemberName() + "/" + query.isMemberSearchExact() + "/" + query.isMemberSearchPackageOnly();
+        if (matches == null || key.equals(matchesKey) == false)
+            match(query, key);
+        final SortedSet<String> found = matches.get(path);
+        return (found != null) ? new TreeSet<>(found) : new TreeSet<String>();
+    }
+
+    private void match(ModuleQuery query, String key) {
+        if (declarations == null) {
+            declarations = new HashMap<>();
+            for (Entry entry : getEntries().values()) {
+                declare(entry);
+            }
+        }
+        matchesKey = key;
+        matchesQuery = query;
+        matches = new HashMap<>();
+        if (query.isMemberSearchExact() && query.isMemberSearchPackageOnly() == false) {
+            final Set<String> paths = declarations.get(query.getMemberName());
+            if (paths != null)
+                addMatch(query.getMemberName(), paths);
+        } else {
+            for (Map.Entry<String, Set<String>> declaration : declarations.entrySet()) {
+                addMatch(declaration.getKey(), declaration.getValue());
+            }
+        }
+    }
+
+    private void addMatch(String member, Set<String> paths) {
+        final String match = AbstractRepository.matchName(member, matchesQuery, false);
+        if (match == null)
+            return;
+        for (String path : paths) {
+            SortedSet<String> found = matches.get(path);
+            if (found == null) {
+                found = new TreeSet<>();
+                matches.put(path, found);
+            }
+            found.add(match);
+        }
+    }
+
+    private void append(Entry entry) {
+        synchronized (this) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(index, true), CHARSET)) {
+                writer.write(entry.toLine());
+            } catch (IOException e) {
+                // it's only an index, next process will simply read the archive again
+            }
+        }
+    }
+
+    private static long getSize(File archive) {
+        return archive.length();
+    }
+
+    /**
+     * The last modified time of the archive, or of the descriptors it's read with if they are more recent.
+     */
+    private static long getLastModified(File archive) {
+        final File dir = archive.getParentFile();
+        long lastModified = archive.lastModified();
+        lastModified = Math.max(lastModified, new File(dir, ArtifactContext.MODULE_XML).lastModified());
+        lastModified = Math.max(lastModified, new File(dir, ArtifactContext.MODULE_PROPERTIES).lastModified());
+        final String name = archive.getName();
+        if (name.endsWith(ArtifactContext.JS) && name.endsWith(ArtifactContext.JS_MODEL) == false) {
+            final String model = name.substring(0, name.length() - ArtifactContext.JS.length()) + ArtifactContext.JS_MODEL;
+            lastModified = Math.max(lastModified, new File(dir, model).lastModified());
+        }
+        return lastModified;
+    }
+
+    private static boolean matches(ModuleVersionDetails mvd, String query) {
+        if (mvd.getDoc() != null && mvd.getDoc().toLowerCase().contains(query))
+            return true;
+        if (mvd.getLicense() != null && mvd.getLicense().toLowerCase().contains(query))
+            return true;
+        for (String author : mvd.getAuthors()) {
+            if (author.toLowerCase().contains(query))
+                return true;
+        }
+        for (ModuleDependencyInfo dep : mvd.getDependencies()) {
+            if (dep.getModuleName().toLowerCase().contains(query))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Callers are free to modify what they get, so the index never hands out its own.
+     */
+    private static ModuleVersionDetails copy(ModuleVersionDetails mvd) {
+        if (mvd == null)
+            return null;
+        return new ModuleVersionDetails(mvd.getModule(), mvd.getVersion(), mvd.getDoc(), mvd.getLicense(),
+                mvd.getAuthors(), mvd.getDependencies(), mvd.getArtifactTypes(), false, null);
+    }
+
+    private String toPath(File archive) {
+        final String rootPath = root.getAbsolutePath() + File.separator;
+        final String path = archive.getAbsolutePath();
+        return path.startsWith(rootPath) ? path.substring(rootPath.length()) : path;
+    }
+
+    private File toFile(String path) {
+        final File file = new File(path);
+        return file.isAbsolute() ? file : new File(root, path);
+    }
+
+    private Map<String, Entry> getEntries() {
+        Map<String, Entry> map = entries;
+        if (map == null) {
+            synchronized (this) {
+                map = entries;
+                if (map == null) {
+                    map = load();
+                    entries = map;
+                }
+            }
+        }
+        return map;
+    }
+
+    private Map<String, Entry> load() {
+        final Map<String, Entry> map = new ConcurrentHashMap<>();
+        if (index.isFile() == false)
+            return map;
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(index), CHARSET))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                final Entry entry = Entry.parse(line);
+                if (entry == null)
+                    continue;
+                if (entry.isRemoved())
+                    map.remove(entry.path);
+                else
+                    map.put(entry.path, entry);
+            }
+        } catch (IOException e) {
+            return map;
+        }
+        if (lines > 2 * map.size() + 100)
+            compact(map);
+        return map;
+    }
+
+    private void compact(Map<String, Entry> map) {
+        try {
+            final File temp = File.createTempFile(INDEX_FILE, ".tmp", root);
+            try {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), CHARSET))) {
+                    for (Entry entry : map.values()) {
+                        // and forget the archives that are gone, e.g. evicted from a cache
+                        if (toFile(entry.path).exists())
+                            writer.write(entry.toLine());
+                        else
+                            map.remove(entry.path);
+                    }
+                }
+                Files.move(temp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                temp.delete();
+            }
+        } catch (IOException ignored) {
+            // we'll try again next time
+        }
+    }
+
+    private static String encode(String s) {
+        if (s == null)
+            return NONE;
+        try {
+            return URLEncoder.encode(s, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String s) {
+        if (NONE.equals(s))
+            return null;
+        try {
+            return URLDecoder.decode(s, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(Integer i) {
+        return (i != null) ? i.toString() : NONE;
+    }
+
+    private static Integer decodeInteger(String s) {
+        return NONE.equals(s) ? null : Integer.valueOf(s);
+    }
+
+    private static Collection<String> split(String list) {
+        final Collection<String> parts = new TreeSet<>();
+        if (list.isEmpty())
+            return parts;
+        Collections.addAll(parts, list.split(LIST_SEPARATOR));
+        return parts;
+    }
+
+    private static class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final boolean binaryVersionsKnown;
+        private final int[] binaryVersions;
+        private final boolean infoKnown;
+        private final ModuleVersionDetails info;
+        private final Set<String> members; // null if unknown
+
+        private Entry(String path, long size, long lastModified, boolean binaryVersionsKnown, int[] binaryVersions, boolean infoKnown, ModuleVersionDetails info, Set<String> members) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.binaryVersionsKnown = binaryVersionsKnown;
+            this.binaryVersions = binaryVersions;
+            this.infoKnown = infoKnown;
+            this.info = info;
+            this.members = members;
+        }
+
+        private static Entry newEntry(String path, long size, long lastModified) {
+            return new Entry(path, size, lastModified, false, null, false, null, null);
+        }
+
+        private Entry withBinaryVersions(int[] versions) {
+            return new Entry(path, size, lastModified, true, (versions != null) ? versions.clone() : null, infoKnown, info, members);
+        }
+
+        private Entry withInfo(ModuleVersionDetails mvd) {
+            return new Entry(path, size, lastModified, binaryVersionsKnown, binaryVersions, true, copy(mvd), members);
+        }
+
+        private Entry withMembers(Set<String> names) {
+            return new Entry(path, size, lastModified, binaryVersionsKnown, binaryVersions, infoKnown, info, Collections.unmodifiableSet(new TreeSet<>(names)));
+        }
+
+        private boolean isRemoved() {
+            return size == REMOVED;
+        }
+
+        private static Entry parse(String line) {
+            // the path goes last, it's the only field that could contain the separator
+            final String[] parts = line.split(SEPARATOR, 6);
+            if (parts.length != 6)
+                return null;
+            try {
+                final long size = Long.parseLong(parts[0]);
+                final long lastModified = Long.parseLong(parts[1]);
+                boolean binaryVersionsKnown = false;
+                int[] binaryVersions = null;
+                if (parts[2].isEmpty() == false) {
+                    binaryVersionsKnown = true;
+                    if (NONE.equals(parts[2]) == false) {
+                        final String[] versions = parts[2].split(PART_SEPARATOR);
+                        binaryVersions = new int[]{Integer.parseInt(versions[0]), Integer.parseInt(versions[1])};
+                    }
+                }
+                boolean infoKnown = false;
+                ModuleVersionDetails info = null;
+                if (parts[3].isEmpty() == false) {
+                    infoKnown = true;
+                    if (NONE.equals(parts[3]) == false)
+                        info = parseInfo(parts[3]);
+                }
+                Set<String> members = null;
+                if (parts[4].isEmpty() == false) {
+                    members = new TreeSet<>();
+                    if (NONE.equals(parts[4]) == false) {
+                        for (String member : parts[4].split(LIST_SEPARATOR)) {
+                            members.add(decode(member));
+                        }
+                    }
+                    members = Collections.unmodifiableSet(members);
+                }
+                return new Entry(parts[5], size, lastModified, binaryVersionsKnown, binaryVersions, infoKnown, info, members);
+            } catch (RuntimeException e) {
+                // corrupt or from another format, skip it
+                return null;
+            }
+        }
+
+        private static ModuleVersionDetails parseInfo(String s) {
+            final String[] fields = s.split(FIELD_SEPARATOR, -1);
+            final ModuleVersionDetails mvd = new ModuleVersionDetails(decode(fields[0]), decode(fields[1]));
+            mvd.setDoc(decode(fields[2]));
+            mvd.setLicense(decode(fields[3]));
+            for (String author : split(fields[4])) {
+                mvd.getAuthors().add(decode(author));
+            }
+            for (String dep : split(fields[5])) {
+                final String[] parts = dep.split(PART_SEPARATOR);
+                mvd.getDependencies().add(new ModuleDependencyInfo(decode(parts[0]), decode(parts[1]), Boolean.parseBoolean(parts[2]), Boolean.parseBoolean(parts[3])));
+            }
+            for (String type : split(fields[6])) {
+                final String[] parts = type.split(PART_SEPARATOR);
+                mvd.getArtifactTypes().add(new ModuleVersionArtifact(decode(parts[0]), decodeInteger(parts[1]), decodeInteger(parts[2])));
+            }
+            return mvd;
+        }
+
+        private static String toString(ModuleVersionDetails mvd) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(encode(mvd.getModule())).append(FIELD_SEPARATOR);
+            sb.append(encode(mvd.getVersion())).append(FIELD_SEPARATOR);
+            sb.append(encode(mvd.getDoc())).append(FIELD_SEPARATOR);
+            sb.append(encode(mvd.getLicense())).append(FIELD_SEPARATOR);
+            String sep = "";
+            for (String author : mvd.getAuthors()) {
+                sb.append(sep).append(encode(author));
+                sep = LIST_SEPARATOR;
+            }
+            sb.append(FIELD_SEPARATOR);
+            sep = "";
+            for (ModuleDependencyInfo dep : mvd.getDependencies()) {
+                sb.append(sep).append(encode(dep.getName())).append(PART_SEPARATOR).append(encode(dep.getVersion()))
+                        .append(PART_SEPARATOR).append(dep.isOptional()).append(PART_SEPARATOR).append(dep.isExport());
+                sep = LIST_SEPARATOR;
+            }
+            sb.append(FIELD_SEPARATOR);
+            sep = "";
+            for (ModuleVersionArtifact type : mvd.getArtifactTypes()) {
+                sb.append(sep).append(encode(type.getSuffix())).append(PART_SEPARATOR).append(encode(type.getMajorBinaryVersion()))
+                        .append(PART_SEPARATOR).append(encode(type.getMinorBinaryVersion()));
+                sep = LIST_SEPARATOR;
+            }
+            return sb.toString();
+        }
+
+        private String toLine() {
+            final String versions;
+            if (binaryVersionsKnown == false)
+                versions = "";
+            else if (binaryVersions == null)
+                versions = NONE;
+            else
+                versions = binaryVersions[0] + PART_SEPARATOR + binaryVersions[1];
+            final String infos;
+            if (infoKnown == false)
+                infos = "";
+            else if (info == null)
+                infos = NONE;
+            else
+                infos = toString(info);
+            final StringBuilder names = new StringBuilder();
+            if (members != null && members.isEmpty()) {
+                names.append(NONE);
+            } else if (members != null) {
+                for (String member : members) {
+                    if (names.length() > 0)
+                        names.append(LIST_SEPARATOR);
+                    names.append(encode(member));
+                }
+            }
+            return size + SEPARATOR + lastModified + SEPARATOR + versions + SEPARATOR + infos + SEPARATOR + names + SEPARATOR + path + "\n";
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Entry == false)
+                return false;
+            final Entry other = (Entry) obj;
+            return path.equals(other.path) && size == other.size && lastModified == other.lastModified
+                    && binaryVersionsKnown == other.binaryVersionsKnown && infoKnown == other.infoKnown
+                    && (members == null) == (other.members == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+    }
+}
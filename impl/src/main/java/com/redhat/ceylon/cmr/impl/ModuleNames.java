@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Sorted module names, answering prefix completions with a binary search.
+ *
+ * Lookups read an immutable sorted array without locking, updates replace it:
+ * names are looked up at every keystroke of a completion, they only change
+ * when modules are published.
+ */
+public class ModuleNames {
+
+    private volatile String[] names;
+
+    public ModuleNames(Collection<String> names) {
+        if (names == null)
+            throw new IllegalArgumentException("Null names!");
+        this.names = new TreeSet<>(names).toArray(new String[0]);
+    }
+
+    /**
+     * Get the names starting with the prefix.
+     *
+     * @param prefix the prefix, empty for all names
+     * @return the names, in their natural order
+     */
+    public List<String> startingWith(String prefix) {
+        final String[] sorted = names;
+        final int from = lowerBound(sorted, prefix);
+        int to = from;
+        while (to < sorted.length && sorted[to].startsWith(prefix))
+            to++;
+        return Arrays.asList(Arrays.copyOfRange(sorted, from, to));
+    }
+
+    public boolean contains(String name) {
+        return Arrays.binarySearch(names, name) >= 0;
+    }
+
+    /**
+     * @param name the name
+     * @return true if it was not known yet
+     */
+    public synchronized boolean add(String name) {
+        final String[] sorted = names;
+        final int i = Arrays.binarySearch(sorted, name);
+        if (i >= 0)
+            return false;
+        final int at = -i - 1;
+        final String[] copy = new String[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        copy[at] = name;
+        System.arraycopy(sorted, at, copy, at + 1, sorted.length - at);
+        names = copy;
+        return true;
+    }
+
+    /**
+     * @param name the name
+     * @return true if it was known
+     */
+    public synchronized boolean remove(String name) {
+        final String[] sorted = names;
+        final int at = Arrays.binarySearch(sorted, name);
+        if (at < 0)
+            return false;
+        final String[] copy = new String[sorted.length - 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        System.arraycopy(sorted, at + 1, copy, at, sorted.length - at - 1);
+        names = copy;
+        return true;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private static int lowerBound(String[] sorted, String key) {
+        final int i = Arrays.binarySearch(sorted, key);
+        return (i >= 0) ? i : -i - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "ModuleNames[" + names.length + "]";
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+
+/**
+ * Stream of a download that keeps what it receives in a partial file,
+ * so that an interrupted download can later be resumed where it stopped.
+ *
+ * It first replays the bytes already in the partial file, then the remote ones,
+ * appending them to the partial file as they go. Once the remote stream was
+ * read to its end the partial file holds the whole content: it can be moved
+ * into place instead of being copied, otherwise it is removed on close.
+ */
+class PartialDownloadStream extends InputStream {
+
+    private final InputStream remote;
+    private final RandomAccessFile partial;
+    private final FileLock lock;
+    private final File partialFile;
+    private final File validatorFile;
+    private InputStream local;
+    private boolean complete;
+    private boolean released;
+    private boolean movedAway;
+
+    /**
+     * @param remote        the remote bytes, starting right after the ones already in the partial file
+     * @param partial       the partial file, positioned at its end
+     * @param lock          the lock held on the partial file
+     * @param partialFile   the partial file
+     * @param validatorFile the file with the partial file's validator
+     * @param offset        the number of bytes of the partial file to replay
+     */
+    PartialDownloadStream(InputStream remote, RandomAccessFile partial, FileLock lock, File partialFile, File validatorFile, long offset) throws IOException {
+        this.remote = remote;
+        this.partial = partial;
+        this.lock = lock;
+        this.partialFile = partialFile;
+        this.validatorFile = validatorFile;
+        if (offset > 0) {
+            this.local = new FileInputStream(partialFile);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int read = read(b, 0, 1);
+        return (read == -1) ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (local != null) {
+            final int read = local.read(b, off, len);
+            if (read != -1)
+                return read;
+            IOUtils.safeClose(local);
+            local = null;
+        }
+        final int read = remote.read(b, off, len);
+        if (read == -1) {
+            complete = true;
+        } else if (read > 0) {
+            partial.write(b, off, read);
+        }
+        return read;
+    }
+
+    /**
+     * Move the partial file, with the whole content, to where it gets staged.
+     * Whoever resumes this download afterwards starts from scratch.
+     *
+     * @param target the staging file
+     * @throws IOException if the download is not complete, or for any I/O error
+     */
+    void moveTo(File target) throws IOException {
+        if (complete == false)
+            throw new IOException("Download not complete: " + partialFile);
+        // still locked, so nobody is resuming into it
+        validatorFile.delete();
+        try {
+            IOUtils.moveAtomically(partialFile, target);
+        } catch (IOException e) {
+            // some file systems don't move open files
+            release();
+            IOUtils.moveAtomically(partialFile, target);
+        }
+        movedAway = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.safeClose(local);
+            IOUtils.safeClose(remote);
+        } finally {
+            release();
+            // once moved away, the partial file may be somebody else's new download
+            if (complete && movedAway == false) {
+                partialFile.delete();
+                validatorFile.delete();
+            }
+        }
+    }
+
+    private void release() throws IOException {
+        if (released)
+            return;
+        released = true;
+        try {
+            lock.release();
+        } finally {
+            IOUtils.safeClose(partial);
+        }
+    }
+}
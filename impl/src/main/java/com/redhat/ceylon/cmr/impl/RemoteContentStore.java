@@ -17,21 +17,27 @@
 
 package com.redhat.ceylon.cmr.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.net.HttpURLConnection;
 import java.net.Proxy;
 import java.net.URL;
-import java.net.URLConnection;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.redhat.ceylon.cmr.spi.ContentHandle;
 import com.redhat.ceylon.cmr.spi.ContentOptions;
 import com.redhat.ceylon.cmr.spi.Node;
 import com.redhat.ceylon.cmr.spi.OpenNode;
-import com.redhat.ceylon.common.Constants;
+import com.redhat.ceylon.cmr.util.HttpClient;
 import com.redhat.ceylon.common.log.Logger;
 
 /**
@@ -41,36 +47,258 @@ import com.redhat.ceylon.common.log.Logger;
  */
 public class RemoteContentStore extends URLContentStore {
 
+    /**
+     * How many response bodies are kept open for nodes that were found but not read yet,
+     * the oldest ones are dropped and read again with a new request if needed.
+     * They are detached from the per host connection limit, so each store can exceed it by that many.
+     */
+    private static final int MAX_UNREAD_RESPONSES = 16;
+
+    private static final ThreadLocal<Boolean> headOnly = new ThreadLocal<>();
+
+    @SuppressWarnings("serial")
+    private final Map<Response, Boolean> unreadResponses = new LinkedHashMap<Response, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Response, Boolean> eldest) {
+            if (size() > MAX_UNREAD_RESPONSES) {
+                eldest.getKey().discard();
+                return true;
+            }
+            return false;
+        }
+    };
+
     public RemoteContentStore(String root, Logger log, boolean offline, int timeout, Proxy proxy) {
         super(root, log, offline, timeout, proxy);
     }
 
+    /**
+     * Open an HTTP GET connection, with the timeouts and credentials of this store.
+     *
+     * @param url the url
+     * @return the connection, or null if we're not allowed to connect or the url is not HTTP
+     * @throws IOException for any I/O error
+     */
+    protected HttpURLConnection openConnection(final URL url) throws IOException {
+        return connectionAllowed() ? httpClient.open(url) : null;
+    }
+
     protected InputStream openStream(final URL url) throws IOException {
-        if (connectionAllowed()) {
-            final URLConnection conn;
-            if (proxy != null) {
-                conn = url.openConnection(proxy);
-            } else {
-                conn = url.openConnection();
+        final HttpURLConnection huc = openConnection(url);
+        if (huc != null) {
+            InputStream stream = getInputStream(huc);
+            int code = huc.getResponseCode();
+            if (code != -1 && code != 200) {
+                log.info("Got " + code + " for url: " + url);
+                stream.close();
+                return null;
             }
-            if (conn instanceof HttpURLConnection) {
-                HttpURLConnection huc = (HttpURLConnection) conn;
-                huc.setConnectTimeout(timeout);
-                huc.setReadTimeout(timeout * Constants.READ_TIMEOUT_MULTIPLIER);
-                addCredentials(huc);
-                InputStream stream = conn.getInputStream();
-                int code = huc.getResponseCode();
-                if (code != -1 && code != 200) {
-                    log.info("Got " + code + " for url: " + url);
+            log.debug("Got " + code + " for url: " + url);
+            return stream;
+        }
+        return null;
+    }
+
+    /**
+     * Send a GET, keeping the response around so that its body can be read later.
+     *
+     * @param url the url
+     * @return the response, or null if not found
+     * @throws IOException for any I/O error
+     */
+    protected Response get(final URL url) throws IOException {
+        final HttpURLConnection huc = openConnection(url);
+        if (huc == null)
+            return null;
+        final int code;
+        try {
+            code = getResponseCode(huc);
+        } catch (IOException | RuntimeException e) {
+            HttpClient.release(huc);
+            throw e;
+        }
+        log.debug("Got " + code + " for url: " + url);
+        if (code != HttpURLConnection.HTTP_OK) {
+            HttpClient.release(huc);
+            return null;
+        }
+        // nobody knows when, if ever, the body will be read, so it shouldn't hold a slot of the host
+        HttpClient.detach(huc);
+        final Response response = new Response(huc);
+        synchronized (unreadResponses) {
+            unreadResponses.put(response, Boolean.TRUE);
+        }
+        return response;
+    }
+
+    /**
+     * Open the node's content, resuming an earlier interrupted download if possible.
+     *
+     * What was already downloaded is kept in the partial file, along with its validator
+     * (ETag or Last-Modified) in a sibling file. If the server still has the same content
+     * and supports ranges, only the missing bytes are requested, otherwise the whole content is.
+     * If the partial file is in use by someone else, this is a plain non-resumable download.
+     *
+     * @param node    the node
+     * @param partial the partial file
+     * @return the content stream, which replays the partial file first, or null if not found
+     * @throws IOException for any I/O error
+     */
+    public InputStream openResumableStream(Node node, File partial) throws IOException {
+        final URL url = getURL(compatiblePath(NodeUtils.getFullPath(node, SEPARATOR)));
+        if (connectionAllowed() == false)
+            return null;
+        final File parent = partial.getParentFile();
+        if (parent.exists() == false && parent.mkdirs() == false)
+            return openStream(url);
+
+        final RandomAccessFile raf = new RandomAccessFile(partial, "rw");
+        final FileLock lock;
+        try {
+            lock = raf.getChannel().tryLock();
+        } catch (OverlappingFileLockException | IOException e) {
+            IOUtils.safeClose(raf);
+            return openStream(url);
+        }
+        if (lock == null) {
+            IOUtils.safeClose(raf);
+            return openStream(url);
+        }
+
+        boolean done = false;
+        HttpURLConnection huc = null;
+        try {
+            final File validatorFile = getValidatorFile(partial);
+            long offset = raf.length();
+            final String validator = (offset > 0 && validatorFile.isFile()) ? IOUtils.readSha1(new FileInputStream(validatorFile)) : null;
+
+            // nothing to resume, so the response that found the node will do, if nobody read it yet
+            huc = (validator == null) ? takeUnreadConnection(node) : null;
+            if (huc == null) {
+                huc = openConnection(url);
+                if (huc == null)
                     return null;
+                if (validator != null) {
+                    huc.setRequestProperty("Range", "bytes=" + offset + "-");
+                    huc.setRequestProperty("If-Range", validator);
+                }
+            }
+            final int code = getResponseCode(huc);
+            if (code == HttpURLConnection.HTTP_PARTIAL && validator != null && isRangeFrom(huc, offset)) {
+                log.debug("Resuming download of " + url + " at byte " + offset);
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                // new or changed content, or the server ignores ranges: start over
+                offset = 0;
+                raf.setLength(0);
+                final String newValidator = getValidator(huc);
+                if (newValidator == null) {
+                    validatorFile.delete();
+                } else {
+                    try (InputStream is = new ByteArrayInputStream(newValidator.getBytes("ASCII"))) {
+                        IOUtils.writeToFile(validatorFile, is);
+                    }
+                }
+            } else {
+                HttpClient.release(huc);
+                huc = null;
+                if (code == 416) {
+                    // whatever we have is of no use anymore
+                    raf.setLength(0);
+                    validatorFile.delete();
+                    return openStream(url);
+                }
+                log.info("Got " + code + " for url: " + url);
+                return null;
+            }
+            log.debug("Got " + code + " for url: " + url);
+            raf.seek(offset);
+            final InputStream remote = HttpClient.getInputStream(huc);
+            huc = null; // closing the stream releases it
+            final InputStream stream = new PartialDownloadStream(remote, raf, lock, partial, validatorFile, offset);
+            done = true;
+            return stream;
+        } finally {
+            if (done == false) {
+                HttpClient.release(huc);
+                try {
+                    lock.release();
+                } finally {
+                    IOUtils.safeClose(raf);
+                    if (partial.length() == 0) {
+                        partial.delete();
+                    }
                 }
-                log.debug("Got " + code + " for url: " + url);
-                return stream;
+            }
+        }
+    }
+
+    /**
+     * Get the file holding the validator of a partial file.
+     *
+     * @param partial the partial file
+     * @return the validator file
+     */
+    public static File getValidatorFile(File partial) {
+        return new File(partial.getParentFile(), partial.getName() + ".validator");
+    }
+
+    private static String getValidator(HttpURLConnection huc) {
+        final String etag = huc.getHeaderField("ETag");
+        // weak validators cannot be used for ranges
+        if (etag != null && etag.startsWith("W/") == false)
+            return etag;
+        return huc.getHeaderField("Last-Modified");
+    }
+
+    private static boolean isRangeFrom(HttpURLConnection huc, long offset) {
+        final String range = huc.getHeaderField("Content-Range");
+        return range != null && range.startsWith("bytes " + offset + "-");
+    }
+
+    private static HttpURLConnection takeUnreadConnection(Node node) {
+        if (node instanceof DefaultNode) {
+            final ContentHandle handle = ((DefaultNode) node).getHandle();
+            if (handle instanceof RemoteContentHandle) {
+                final Response response = ((RemoteContentHandle) handle).response;
+                return (response != null) ? response.take() : null;
             }
         }
         return null;
     }
 
+    /**
+     * Make the lookups of this thread check artifacts with a HEAD rather than a GET.
+     * Meant for lookups whose result will likely not be used, e.g. lower priority repositories
+     * probed concurrently, so that they don't start sending bodies nobody reads.
+     *
+     * @param head use HEAD requests
+     */
+    static void setHeadOnly(boolean head) {
+        if (head)
+            headOnly.set(Boolean.TRUE);
+        else
+            headOnly.remove();
+    }
+
+    @Override
+    public OpenNode find(Node parent, String child) {
+        if (hasContent(child) == false || headOnly.get() != null)
+            return super.find(parent, child);
+        // a single GET tells us whether it exists, its size and last modified time, and has the body ready
+        final Response response;
+        try {
+            final URL url = getURL(compatiblePath(getFullPath(parent, child)));
+            response = (url != null) ? get(url) : null;
+        } catch (IOException ignored) {
+            return null;
+        }
+        if (response == null)
+            return null;
+        final RemoteNode node = createNode(child);
+        node.setHandle(new RemoteContentHandle(node, response));
+        return node;
+    }
+
     protected boolean exists(final URL url) throws IOException {
         return head(url) != null;
     }
@@ -121,9 +349,15 @@ public class RemoteContentStore extends URLContentStore {
 
     private class RemoteContentHandle implements ContentHandle {
         private final Node node;
+        private final Response response; // the response that found the node, if any
 
         private RemoteContentHandle(Node node) {
+            this(node, null);
+        }
+
+        private RemoteContentHandle(Node node, Response response) {
             this.node = node;
+            this.response = response;
         }
 
         public boolean hasBinaries() {
@@ -131,6 +365,10 @@ public class RemoteContentStore extends URLContentStore {
         }
 
         public InputStream getBinariesAsStream() throws IOException {
+            final HttpURLConnection unread = (response != null) ? response.take() : null;
+            if (unread != null) {
+                return unread.getInputStream();
+            }
             final URL url = getURL(compatiblePath(NodeUtils.getFullPath(node, SEPARATOR)));
             log.debug("Fetching resource: " + url);
             return openStream(url);
@@ -141,11 +379,17 @@ public class RemoteContentStore extends URLContentStore {
         }
 
         public long getLastModified() throws IOException {
+            if (response != null) {
+                return response.lastModified;
+            }
             final URL url = getURL(compatiblePath(NodeUtils.getFullPath(node, SEPARATOR)));
             return lastModified(url);
         }
 
         public long getSize() throws IOException {
+            if (response != null) {
+                return response.size;
+            }
             final URL url = getURL(compatiblePath(NodeUtils.getFullPath(node, SEPARATOR)));
             return size(url);
         }
@@ -154,6 +398,51 @@ public class RemoteContentStore extends URLContentStore {
         }
     }
 
+    /**
+     * A successful GET response: its metadata, and its body until somebody reads it.
+     */
+    protected class Response {
+        private final long size;
+        private final long lastModified;
+        private volatile HttpURLConnection connection;
+
+        private Response(HttpURLConnection connection) {
+            this.connection = connection;
+            this.size = connection.getContentLengthLong();
+            this.lastModified = connection.getLastModified();
+        }
+
+        /**
+         * Take the connection, to read the body. Only the first caller gets it.
+         *
+         * @return the connection, or null if it was already taken or discarded
+         */
+        HttpURLConnection take() {
+            final HttpURLConnection conn;
+            synchronized (this) {
+                conn = connection;
+                connection = null;
+            }
+            if (conn != null) {
+                synchronized (unreadResponses) {
+                    unreadResponses.remove(this);
+                }
+            }
+            return conn;
+        }
+
+        private void discard() {
+            final HttpURLConnection conn;
+            synchronized (this) {
+                conn = connection;
+                connection = null;
+            }
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
     private static class ImmutableRemoteNode extends RemoteNode {
         private ImmutableRemoteNode(String label) {
             super(label);
@@ -94,6 +94,51 @@ public class RepositoryManagerBuilderImpl extends RepositoryManagerBuilder {
         return this;
     }
 
+    public RepositoryManagerBuilderImpl lookupThreads(int threads) {
+        repository.setLookupExecutor(threads > 1 ? DaemonThreadFactory.sharedThreadPool("ceylon-cmr-lookup", threads) : null);
+        return this;
+    }
+
+    public RepositoryManagerBuilderImpl batchThreads(int threads) {
+        repository.setBatchExecutor(threads > 1 ? DaemonThreadFactory.sharedThreadPool("ceylon-cmr-batch", threads) : null);
+        return this;
+    }
+
+    public RepositoryManagerBuilderImpl missingArtifactTtl(long millis) {
+        repository.setMissingArtifactTtl(millis);
+        return this;
+    }
+
+    public RepositoryManagerBuilderImpl staleWhileRevalidate(boolean stale) {
+        repository.setStaleWhileRevalidate(stale);
+        return this;
+    }
+
+    public RepositoryManagerBuilderImpl hardLinks(boolean hardLinks) {
+        repository.setHardLinks(hardLinks);
+        return this;
+    }
+
+    public RepositoryManagerBuilderImpl contentAddressed(boolean contentAddressed) {
+        repository.setContentAddressed(contentAddressed);
+        return this;
+    }
+
+    public RepositoryManagerBuilderImpl cacheQuota(long maxSize, long maxAge) {
+        repository.setCacheQuota(maxSize, maxAge);
+        return this;
+    }
+
+    public RepositoryManagerBuilderImpl memoryCache(long maxBytes) {
+        repository.setMemoryCache(maxBytes);
+        return this;
+    }
+
+    public RepositoryManagerBuilderImpl herdResponseCache(long ttl, long maxBytes, boolean persistent) {
+        repository.setHerdResponseCache(ttl, maxBytes, persistent);
+        return this;
+    }
+
     protected RepositoryManagerBuilderImpl addExternalRoot(OpenNode externalRoot) {
         repository.addRepository(new DefaultRepository(externalRoot));
         return this;
@@ -17,13 +17,21 @@
 
 package com.redhat.ceylon.cmr.impl;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.redhat.ceylon.cmr.api.ArtifactCallback;
 import com.redhat.ceylon.cmr.api.ArtifactCallbackStream;
@@ -44,7 +52,15 @@ import com.redhat.ceylon.model.cmr.RepositoryException;
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class RootRepositoryManager extends AbstractNodeRepositoryManager {
+    private static final long COLLECTION_INTERVAL = 10 * 60 * 1000L;
+
     private final FileContentStore fileContentStore;
+    private volatile long missingArtifactTtl; // how long do we trust .missing markers, 0 means never
+    private volatile Sha1Ledger sha1Ledger;
+    private volatile boolean computeSha256;
+    private final ConcurrentMap<DownloadKey, FutureTask<ArtifactResult>> downloads = new ConcurrentHashMap<>();
+    private volatile CacheCollector cacheCollector; // null means no quota
+    private final AtomicLong lastCollection = new AtomicLong();
 
     private static File getRootDir() {
         com.redhat.ceylon.common.config.Repositories.Repository rootRepo = Repositories.get().getCacheRepository();
@@ -65,6 +81,9 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
                 throw new RepositoryException("Ceylon cache repository is not a directory: " + rootDir);
             }
             this.fileContentStore = new FileContentStore(rootDir);
+            // the cache is shared by all the processes of the user
+            this.fileContentStore.setShared(true);
+            this.sha1Ledger = new Sha1Ledger(rootDir);
             final CmrRepository aaca = new DefaultRepository(new RootNode(fileContentStore, fileContentStore));
             setCache(aaca);
         }else{
@@ -72,59 +91,309 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
         }
     }
 
-    protected ArtifactResult getArtifactResult(ArtifactContext context, Node node) throws RepositoryException {
+    /**
+     * Keep the cache within a quota, by evicting the least recently used module versions
+     * in the background after downloads. Module versions used recently are never evicted.
+     * Only managers with a quota record when they serve module versions from the cache.
+     *
+     * @param maxSize the maximum size of the cache in bytes, 0 or less for no limit
+     * @param maxAge  the time in milliseconds after which unused module versions are evicted, 0 or less for no limit
+     * @see CacheCollector
+     */
+    public void setCacheQuota(long maxSize, long maxAge) {
+        if (fileContentStore == null || (maxSize <= 0 && maxAge <= 0)) {
+            cacheCollector = null;
+        } else {
+            final CacheCollector collector = new CacheCollector(fileContentStore.getRoot());
+            collector.setMaxSize(maxSize);
+            collector.setMaxAge(maxAge);
+            cacheCollector = collector;
+        }
+    }
+
+    public CacheCollector getCacheCollector() {
+        return cacheCollector;
+    }
+
+    private void collectCacheInBackground() {
+        final CacheCollector collector = cacheCollector;
+        if (collector == null)
+            return;
+        final long now = System.currentTimeMillis();
+        final long last = lastCollection.get();
+        // walking the cache is not free, don't do it after each and every download
+        if (now - last < COLLECTION_INTERVAL || lastCollection.compareAndSet(last, now) == false)
+            return;
+        refreshInBackground("cache-collection", new Runnable() {
+            public void run() {
+                final CacheCollector.Usage usage = collector.collect();
+                if (usage.getEvictedVersions() > 0) {
+                    log.debug("Evicted " + usage.getEvictedVersions() + " module versions from the cache: " + usage);
+                    // the evicted artifacts may have been the last links to their blobs
+                    if (fileContentStore != null && fileContentStore.isContentAddressed()) {
+                        try {
+                            fileContentStore.collectBlobs();
+                        } catch (IOException e) {
+                            log.debug("Failed to collect the unused blobs of the cache: " + e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Set for how long the .missing markers in the cache are trusted.
+     * During that time an artifact that was not found in any of the remote
+     * repositories will not be looked up remotely again, unless the list of
+     * remote repositories has changed or the lookup context says to ignore the cache.
+     *
+     * @param millis the time to live in milliseconds, 0 or less disables the negative cache
+     */
+    public void setMissingArtifactTtl(long millis) {
+        this.missingArtifactTtl = millis;
+    }
+
+    public long getMissingArtifactTtl() {
+        return missingArtifactTtl;
+    }
+
+    /**
+     * Set the ledger used to remember SHA1 verifications of local artifacts across processes.
+     *
+     * @param sha1Ledger the ledger, or null to always re-hash artifacts
+     */
+    public void setSha1Ledger(Sha1Ledger sha1Ledger) {
+        this.sha1Ledger = sha1Ledger;
+    }
+
+    public Sha1Ledger getSha1Ledger() {
+        return sha1Ledger;
+    }
+
+    /**
+     * Also compute the SHA-256 of downloaded artifacts, checking it against the remote
+     * .sha256 file if there is one, and keeping it in a .sha256.local file next to the artifact.
+     *
+     * @param computeSha256 compute SHA-256 digests as well
+     */
+    public void setComputeSha256(boolean computeSha256) {
+        this.computeSha256 = computeSha256;
+    }
+
+    public boolean isComputeSha256() {
+        return computeSha256;
+    }
+
+    /**
+     * Put artifacts coming from local files as hard links to these files, when the file system allows it,
+     * instead of copies.
+     *
+     * @param hardLinks use hard links
+     * @see FileContentStore#setHardLinks(boolean)
+     */
+    public void setHardLinks(boolean hardLinks) {
+        if (fileContentStore != null)
+            fileContentStore.setHardLinks(hardLinks);
+    }
+
+    public boolean isHardLinks() {
+        return fileContentStore != null && fileContentStore.isHardLinks();
+    }
+
+    /**
+     * Serve the small files of the cache from memory, e.g. module descriptors and signatures
+     * that long running processes read over and over again.
+     *
+     * @param maxBytes the memory budget, 0 or less to always read from disk
+     * @see HotContentCache
+     */
+    public void setMemoryCache(long maxBytes) {
+        if (fileContentStore != null)
+            fileContentStore.setHotCache(maxBytes > 0 ? new HotContentCache(maxBytes) : null);
+    }
+
+    /**
+     * @return the memory cache, with its statistics, or null if there is none
+     */
+    public HotContentCache getMemoryCache() {
+        return fileContentStore != null ? fileContentStore.getHotCache() : null;
+    }
+
+    /**
+     * Keep the responses of the Herd's completion and search queries, for all the Herd repositories of this JVM.
+     * The first repository manager to ask for it sets the cache up, the others share it as it is.
+     *
+     * @param ttl        the time in milliseconds a response is reused, unless the Herd's caching headers say otherwise
+     * @param maxBytes   the byte budget, 0 or less not to ask for a cache
+     * @param persistent also keep the responses in the cache, so they survive a restart
+     * @see HerdResponseCache
+     * @see URLContentStore#setResponseCache(HerdResponseCache)
+     */
+    public void setHerdResponseCache(long ttl, long maxBytes, boolean persistent) {
+        if (ttl <= 0 || maxBytes <= 0)
+            return; // other repository managers may still want theirs
+        HerdResponseCache installed = URLContentStore.getResponseCache();
+        if (installed == null) {
+            final File dir = (persistent && fileContentStore != null) ? new File(fileContentStore.getRoot(), HerdResponseCache.CACHE_DIR) : null;
+            installed = URLContentStore.installResponseCache(new HerdResponseCache(ttl, maxBytes, dir));
+        }
+        if (installed.getTtl() != ttl || installed.getMaxBytes() != maxBytes)
+            log.debug("Sharing the Herd response cache already set up in this JVM: " + installed);
+    }
+
+    /**
+     * Keep a single copy of identical artifacts in the cache.
+     *
+     * @param contentAddressed share content through blobs
+     * @see FileContentStore#setContentAddressed(boolean)
+     */
+    public void setContentAddressed(boolean contentAddressed) {
+        if (fileContentStore != null)
+            fileContentStore.setContentAddressed(contentAddressed);
+    }
+
+    public boolean isContentAddressed() {
+        return fileContentStore != null && fileContentStore.isContentAddressed();
+    }
+
+    protected ArtifactResult getArtifactResult(final ArtifactContext context, final Node node) throws RepositoryException {
         if (node.isRemote()) {
-            final boolean forceOp = context.isForceOperation();
-            try {
-                context.setForceOperation(true); // just force the ops
-                log.debug("Looking up artifact " + context + " from " + node + " to cache it");
-                InputStream inputStream = node.getInputStream();
-                // temp fix for https://github.com/ceylon/ceylon-module-resolver/issues/60
-                // in theory we should not have nodes with null streams, but at least provide a helpful exception
-                if (inputStream == null) {
-                    throw new RepositoryException("Node " + node + " for repository " + this + " returned a null stream");
+            // concurrent requests for the same remote artifact share a single download,
+            // as long as they would have downloaded it the same way
+            final DownloadKey key = new DownloadKey(node, context);
+            final FutureTask<ArtifactResult> task = new FutureTask<>(new Callable<ArtifactResult>() {
+                public ArtifactResult call() throws Exception {
+                    return downloadArtifact(context, node);
                 }
+            });
+            final FutureTask<ArtifactResult> download = downloads.putIfAbsent(key, task);
+            if (download == null) {
                 try {
-                    log.debug(" -> Found it, now caching it");
-                    final File file = putContent(context, node, inputStream);
-                    log.debug("    Caching done: " + file);
-                    String repositoryDisplayString = NodeUtils.getRepositoryDisplayString(node);
-                    File originalRepoFile = new File(file.getParentFile(), file.getName().concat(ORIGIN));                        
-                    FileWriter writer = new FileWriter(originalRepoFile, false);
-                    try {
-                        writer.write(repositoryDisplayString);
-                        writer.close();
-                    } catch(IOException e) {
-                        log.error(e.toString());
-                    }
-                    // we expect the remote nodes to support Ceylon module info
-                    return new FileArtifactResult(NodeUtils.getRepository(node), this, context.getName(), context.getVersion(), file, repositoryDisplayString);
+                    task.run();
                 } finally {
-                    IOUtils.safeClose(inputStream);
+                    downloads.remove(key, task);
                 }
-            } catch (IOException e) {
-                throw new RepositoryException(e);
-            } finally {
-                context.setForceOperation(forceOp);
+                return getDownloadResult(task, context);
             }
+            log.debug("Waiting for ongoing download of " + context + " from " + node);
+            return waitForDownload(download, context, node);
         } else {
+            if (cacheCollector != null && NodeUtils.getRepository(node) == cache) {
+                // served from the cache, keep it there
+                CacheCollector.recordAccess(fileContentStore.getFile(node));
+            }
             return toArtifactResult(node);
         }
     }
 
+    /**
+     * Wait for somebody else's download, telling our own callback about it as if we did it.
+     */
+    private ArtifactResult waitForDownload(FutureTask<ArtifactResult> download, ArtifactContext context, Node node) throws RepositoryException {
+        ArtifactCallback callback = context.getCallback();
+        if (callback == null) {
+            callback = ArtifactCallbackStream.getCallback();
+        }
+        final File file = (fileContentStore != null) ? fileContentStore.getFile(node) : null;
+        if (callback != null) {
+            long size;
+            try {
+                size = node.getSize();
+            } catch (IOException e) {
+                size = -1;
+            }
+            callback.start(NodeUtils.getFullPath(node), size, node.getStoreDisplayString());
+        }
+        try {
+            final ArtifactResult result = getDownloadResult(download, context);
+            if (callback != null) {
+                callback.done(file);
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (callback != null) {
+                callback.error(file, e);
+            }
+            throw e;
+        }
+    }
+
+    private static ArtifactResult getDownloadResult(FutureTask<ArtifactResult> download, ArtifactContext context) throws RepositoryException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while waiting for download of " + context, e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RepositoryException(cause);
+        }
+    }
+
+    private ArtifactResult downloadArtifact(ArtifactContext context, Node node) throws RepositoryException {
+        // just force the ops, without touching the caller's context
+        final ArtifactContext forced = context.copy();
+        forced.setForceOperation(true);
+        try {
+            log.debug("Looking up artifact " + context + " from " + node + " to cache it");
+            InputStream inputStream = openDownloadStream(node);
+            // temp fix for https://github.com/ceylon/ceylon-module-resolver/issues/60
+            // in theory we should not have nodes with null streams, but at least provide a helpful exception
+            if (inputStream == null) {
+                throw new RepositoryException("Node " + node + " for repository " + this + " returned a null stream");
+            }
+            try {
+                log.debug(" -> Found it, now caching it");
+                final File file = putContent(forced, node, inputStream);
+                log.debug("    Caching done: " + file);
+                collectCacheInBackground();
+                String repositoryDisplayString = NodeUtils.getRepositoryDisplayString(node);
+                File originalRepoFile = new File(file.getParentFile(), file.getName().concat(ORIGIN));                        
+                FileWriter writer = new FileWriter(originalRepoFile, false);
+                try {
+                    writer.write(repositoryDisplayString);
+                    writer.close();
+                } catch(IOException e) {
+                    log.error(e.toString());
+                }
+                // we expect the remote nodes to support Ceylon module info
+                return new FileArtifactResult(NodeUtils.getRepository(node), this, context.getName(), context.getVersion(), file, repositoryDisplayString);
+            } finally {
+                IOUtils.safeClose(inputStream);
+            }
+        } catch (IOException e) {
+            throw new RepositoryException(e);
+        }
+    }
+
+    private InputStream openDownloadStream(Node node) throws IOException {
+        final CmrRepository repo = NodeUtils.getRepository(node);
+        final ContentStore cs = (repo != null) ? repo.getRoot().getService(ContentStore.class) : null;
+        if (cs instanceof RemoteContentStore && fileContentStore != null) {
+            // keep what we get next to its final location, so an interrupted download can be resumed
+            final File partial = IOUtils.getPartialFile(fileContentStore.getFile(node));
+            return ((RemoteContentStore) cs).openResumableStream(node, partial);
+        }
+        return node.getInputStream();
+    }
+
     @Override
     protected ArtifactResult artifactNotFound(ArtifactContext context) throws RepositoryException {
-        boolean hasRemote = false;
-        StringBuilder reps = new StringBuilder();
-        for (CmrRepository rep : getRepositories()) {
-            if (rep.getRoot().isRemote() && !isOffline(rep)) {
-                hasRemote = true;
-                reps.append(rep.getDisplayString());
-                reps.append('\n');
-            }
+        String reps;
+        CmrRepository searched = (CmrRepository) context.getSearchRepository();
+        if (searched != null && searched.getRoot().isRemote()) {
+            // a lookup pinned to a single repository only proves that one doesn't have it
+            reps = isOffline(searched) ? null : searched.getDisplayString() + '\n';
+        } else {
+            reps = getRemoteRepositoriesDisplayString();
         }
 
-        if (hasRemote && cache != null) {
+        if (reps != null && cache != null) {
             // Create a .missing file in the cache to mark that we tried to locate the file but it didn't exist 
             Node parent = cache.findParent(context);
             if (parent != null) {
@@ -133,21 +402,25 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
                     // fileContentStore cannot be null if we have a cache
                     File parentDir = fileContentStore.getFile(parent);
                     String[] names = cache.getArtifactNames(context);
-                    File missingFile = new File(parentDir, names[0].concat(MISSING));
-                    if (!missingFile.exists()) {
-                        if (context.getSearchRepository() == cache) {
-                            ArtifactContext unpreferred = new ArtifactContext(context.getName(), context.getVersion(), context.getSuffixes());
-                            unpreferred.copySettingsFrom(context);
-                            return getArtifactResult(unpreferred);
-                        } else {
-                            parentDir.mkdirs();
-                            try (FileWriter writer = new FileWriter(missingFile, false)) {
-                                // We write the list of remote repositories we tried
-                                // This is not currently used but might be useful in the future
-                                writer.write(reps.toString());
-                            } catch(IOException e) {
-                                log.error(e.toString());
-                            }
+                    if (context.getSearchRepository() == cache
+                            && isStaleMissingMarker(new File(parentDir, names[0].concat(MISSING)), reps)) {
+                        ArtifactContext unpreferred = new ArtifactContext(context.getName(), context.getVersion(), context.getSuffixes());
+                        unpreferred.copySettingsFrom(context);
+                        return getArtifactResult(unpreferred);
+                    }
+                    // every artifact we looked for gets its marker, isKnownMissing needs all of them
+                    for (String name : names) {
+                        File missingFile = new File(parentDir, name.concat(MISSING));
+                        // only (re)write stale markers, otherwise their time to live would never end
+                        if (isStaleMissingMarker(missingFile, reps) == false)
+                            continue;
+                        parentDir.mkdirs();
+                        try (FileWriter writer = new FileWriter(missingFile, false)) {
+                            // We write the list of remote repositories we tried,
+                            // the marker is only valid for that same list
+                            writer.write(reps);
+                        } catch(IOException e) {
+                            log.error(e.toString());
                         }
                     }
                 } finally {
@@ -158,6 +431,149 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
         
         return super.artifactNotFound(context);
     }
+
+    @Override
+    protected boolean isKnownMissing(ArtifactContext context) {
+        final boolean stale = isStaleWhileRevalidate();
+        if ((missingArtifactTtl <= 0 && stale == false) || cache == null || context.isIgnoreCache())
+            return false;
+
+        final String reps = getRemoteRepositoriesDisplayString();
+        if (reps == null)
+            return false;
+        final Node parent = cache.findParent(context);
+        if (parent == null)
+            return false;
+        // fileContentStore cannot be null if we have a cache
+        final File parentDir = fileContentStore.getFile(parent);
+        boolean expired = false;
+        for (String name : cache.getArtifactNames(context)) {
+            final File missingFile = new File(parentDir, name.concat(MISSING));
+            if (isValidMissingMarker(missingFile, reps))
+                continue;
+            // an expired marker still counts if we may serve stale results,
+            // but only if it was written for the current remote repositories
+            if (stale == false || isMissingMarkerFor(missingFile, reps) == false)
+                return false;
+            expired = true;
+        }
+        if (expired)
+            recheckInBackground(context);
+        return true;
+    }
+
+    /**
+     * Ask the remote repositories again for an artifact we said was missing:
+     * if they have it now it gets downloaded into the cache, otherwise the markers get renewed.
+     */
+    private void recheckInBackground(ArtifactContext context) {
+        final ArtifactContext recheck = context.copy();
+        recheck.setIgnoreCache(true);
+        recheck.setThrowErrorIfMissing(false);
+        recheck.setCallback(null);
+        refreshInBackground("missing:" + recheck, new Runnable() {
+            public void run() {
+                getArtifactResult(recheck);
+            }
+        });
+    }
+
+    @Override
+    protected CmrRepository getOriginRepository(ArtifactContext context) {
+        if (cache == null)
+            return null;
+        final Node parent = cache.findParent(context);
+        if (parent == null)
+            return null;
+        // fileContentStore cannot be null if we have a cache
+        final File parentDir = fileContentStore.getFile(parent);
+        // the artifact itself first, otherwise the module's main artifacts
+        CmrRepository origin = getOriginRepository(parentDir, cache.getArtifactNames(context));
+        if (origin == null) {
+            final ArtifactContext module = new ArtifactContext(context.getName(), context.getVersion(),
+                    ArtifactContext.CAR, ArtifactContext.JAR, ArtifactContext.JS);
+            origin = getOriginRepository(parentDir, cache.getArtifactNames(module));
+        }
+        return origin;
+    }
+
+    private CmrRepository getOriginRepository(File parentDir, String[] names) {
+        for (String name : names) {
+            final File origin = new File(parentDir, name.concat(ORIGIN));
+            if (origin.isFile() == false)
+                continue;
+            final String displayString = readOrigin(origin);
+            if (displayString == null)
+                continue;
+            for (CmrRepository rep : getRepositories()) {
+                if (rep.getRoot().isRemote() && displayString.equals(rep.getDisplayString()))
+                    return rep;
+            }
+        }
+        return null;
+    }
+
+    private String readOrigin(File origin) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(origin))) {
+            final String line = reader.readLine();
+            return (line != null && !line.trim().isEmpty()) ? line : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Does the marker need to be (re)written after a full lookup?
+     * Without a time to live, markers never go stale once written.
+     */
+    private boolean isStaleMissingMarker(File missingFile, String reps) {
+        if (!missingFile.exists())
+            return true;
+        return missingArtifactTtl > 0 && !isValidMissingMarker(missingFile, reps);
+    }
+
+    /**
+     * A marker is valid if it has not expired and was written for the current remote repositories.
+     */
+    private boolean isValidMissingMarker(File missingFile, String reps) {
+        if (missingArtifactTtl <= 0 || !missingFile.isFile())
+            return false;
+        if (System.currentTimeMillis() - missingFile.lastModified() > missingArtifactTtl)
+            return false;
+        return isMissingMarkerFor(missingFile, reps);
+    }
+
+    /**
+     * Was the marker written for the current remote repositories, whatever its age.
+     */
+    private static boolean isMissingMarkerFor(File missingFile, String reps) {
+        if (!missingFile.isFile())
+            return false;
+        try {
+            // written with a FileWriter, so read it back with the default charset
+            return reps.equals(new String(Files.readAllBytes(missingFile.toPath())));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The display strings of the online remote repositories, one per line.
+     *
+     * @return the display strings, or null if there are no such repositories
+     */
+    private String getRemoteRepositoriesDisplayString() {
+        boolean hasRemote = false;
+        StringBuilder reps = new StringBuilder();
+        for (CmrRepository rep : getRepositories()) {
+            if (rep.getRoot().isRemote() && !isOffline(rep)) {
+                hasRemote = true;
+                reps.append(rep.getDisplayString());
+                reps.append('\n');
+            }
+        }
+        return hasRemote ? reps.toString() : null;
+    }
     
     private boolean isOffline(CmrRepository repo) {
         ContentStore cs = repo.getRoot().getService(ContentStore.class);
@@ -170,18 +586,63 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
         if(fileContentStore == null)
             throw new IOException("No location to place node at: fileContentStore is null");
         
+        // fetch the expected digests first, so the download can be verified before it becomes visible
+        final boolean checkSHA = context.isIgnoreSHA() == false && node instanceof OpenNode;
+        Node parent = null;
+        Node sha = null;
+        String expectedSha1 = null;
+        String expectedSha256 = null;
+        if (checkSHA) {
+            parent = NodeUtils.firstParent(node);
+            if (parent == null) {
+                throw new IllegalArgumentException("Parent should not be null: " + node);
+            }
+            sha = parent.getChild(node.getLabel() + SHA1);
+            if (sha != null && sha.hasBinaries()) {
+                expectedSha1 = IOUtils.readSha1(sha.getInputStream());
+            }
+            if (computeSha256) {
+                final Node sha256 = parent.getChild(node.getLabel() + SHA256);
+                if (sha256 != null && sha256.hasBinaries()) {
+                    expectedSha256 = IOUtils.readSha1(sha256.getInputStream());
+                }
+            }
+        }
+
         ArtifactCallback callback = context.getCallback();
         if (callback == null) {
             callback = ArtifactCallbackStream.getCallback();
         }
         final File file;
+        DigestingInputStream digests = null;
         try {
+            // local files are copied by the store without going through the stream, so keep it as it is
+            final File source = FileContentStore.getSourceFile(stream);
+            // and resumable downloads already keep their content next to where it goes
+            final PartialDownloadStream download = (stream instanceof PartialDownloadStream) ? (PartialDownloadStream) stream : null;
             if (callback != null) {
                 callback.start(NodeUtils.getFullPath(node), node.getSize(), node.getStoreDisplayString());
-                stream = new ArtifactCallbackStream(callback, stream);
+                if (source == null)
+                    stream = new ArtifactCallbackStream(callback, stream);
+            }
+            FileContentStore.ContentVerifier verifier = null;
+            if (checkSHA) {
+                if (source != null) {
+                    digests = IOUtils.digest(source, computeSha256);
+                } else {
+                    // digest the bytes on their way to the disk, instead of reading the file again
+                    digests = new DigestingInputStream(stream, computeSha256);
+                    stream = digests;
+                }
+                verifier = newDigestVerifier(digests, expectedSha1, expectedSha256);
             }
-            fileContentStore.putContent(node, stream, context); // stream should be closed closer to API call
+            fileContentStore.putContent(node, stream, context, verifier, download); // stream should be closed closer to API call
             file = fileContentStore.getFile(node); // re-get
+            // whatever was missing before is there now
+            File missingFile = new File(file.getParentFile(), file.getName().concat(MISSING));
+            if (missingFile.exists() && !missingFile.delete()) {
+                log.warning("Could not remove stale marker: " + missingFile);
+            }
             if (callback != null) {
                 callback.done(file);
             }
@@ -196,35 +657,28 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
             }
         }
 
-        if (context.isIgnoreSHA() == false && node instanceof OpenNode) {
+        if (digests != null) {
             final OpenNode on = (OpenNode) node;
-            final String sha1 = IOUtils.sha1(new FileInputStream(file));
-            if (sha1 != null) {
-                ByteArrayInputStream shaStream = new ByteArrayInputStream(sha1.getBytes("ASCII"));
-                Node parent = NodeUtils.firstParent(node);
-                if (parent == null) {
-                    throw new IllegalArgumentException("Parent should not be null: " + node);
-                }
-                Node sha = parent.getChild(on.getLabel() + SHA1);
-                if (sha == null) {
-                    // put it to ext node as well, if supported
-                    on.addContent(SHA1, shaStream, context);
-                    shaStream.reset(); // reset, for next read
-                } else if (sha.hasBinaries()) {
-                    final String existingSha1 = IOUtils.readSha1(sha.getInputStream());
-                    if (sha1.equals(existingSha1) == false) {
-                        try {
-                            fileContentStore.delete(file, node);
-                        } catch (Exception e) {
-                            log.warning("Error removing new content: " + file);
-                        }
-                        throw new IOException("Bad SHA1 - file: " + sha1 + " != " + existingSha1);
-                    }
-                }
-                // create empty marker node
-                OpenNode sl = ((OpenNode) parent).addNode(on.getLabel() + SHA1 + LOCAL);
-                // put sha to local store as well
-                fileContentStore.putContent(sl, shaStream, context);
+            final String sha1 = digests.getSha1();
+            ByteArrayInputStream shaStream = new ByteArrayInputStream(sha1.getBytes("ASCII"));
+            if (sha == null) {
+                // put it to ext node as well, if supported
+                on.addContent(SHA1, shaStream, context);
+                shaStream.reset(); // reset, for next read
+            }
+            // create empty marker node
+            OpenNode sl = ((OpenNode) parent).addNode(on.getLabel() + SHA1 + LOCAL);
+            // put sha to local store as well
+            fileContentStore.putContent(sl, shaStream, context);
+            final String sha256 = digests.getSha256();
+            if (sha256 != null) {
+                OpenNode sl256 = ((OpenNode) parent).addNode(on.getLabel() + SHA256 + LOCAL);
+                fileContentStore.putContent(sl256, new ByteArrayInputStream(sha256.getBytes("ASCII")), context);
+            }
+            // and remember we've just verified it, so nobody needs to hash it again
+            final Sha1Ledger ledger = sha1Ledger;
+            if (ledger != null) {
+                ledger.record(file, sha1, true);
             }
         }
 
@@ -256,6 +710,21 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
         return file;
     }
 
+    private static FileContentStore.ContentVerifier newDigestVerifier(final DigestingInputStream digests, final String expectedSha1, final String expectedSha256) {
+        return new FileContentStore.ContentVerifier() {
+            public void verify(File staged) throws IOException {
+                final String sha1 = digests.getSha1();
+                if (expectedSha1 != null && sha1.equals(expectedSha1) == false) {
+                    throw new IOException("Bad SHA1 - file: " + sha1 + " != " + expectedSha1);
+                }
+                final String sha256 = digests.getSha256();
+                if (expectedSha256 != null && sha256 != null && sha256.equals(expectedSha256) == false) {
+                    throw new IOException("Bad SHA-256 - file: " + sha256 + " != " + expectedSha256);
+                }
+            }
+        };
+    }
+
     @Override
     protected void addContent(ArtifactContext context, Node parent, String label, InputStream content) throws IOException {
         Node child;
@@ -286,6 +755,10 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
                     if (sl != null) {
                         fileContentStore.removeFile(sl);
                     }
+                    final Node sl256 = parent.getChild(child + SHA256 + LOCAL);
+                    if (sl256 != null) {
+                        fileContentStore.removeFile(sl256);
+                    }
                     final Node origin = parent.getChild(child + ORIGIN);
                     if (origin != null) {
                         fileContentStore.removeFile(origin);
@@ -324,6 +797,28 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
         return result;
     }
 
+    @Override
+    protected boolean checkSHA(Node artifact, InputStream shaStream) throws IOException {
+        final Sha1Ledger ledger = sha1Ledger;
+        final File file = (ledger != null) ? getLocalFile(artifact) : null;
+        if (file == null) {
+            return super.checkSHA(artifact, shaStream);
+        }
+        final Boolean verdict = ledger.verify(file, IOUtils.readSha1(shaStream));
+        return verdict != null && verdict;
+    }
+
+    private static File getLocalFile(Node node) {
+        if (node.isRemote() || node instanceof DefaultNode == false)
+            return null;
+        try {
+            final File file = node.getContent(File.class);
+            return (file != null && file.isFile()) ? file : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     @Override
     public String toString() {
         return "RootRepositoryManager: " + fileContentStore;
@@ -336,4 +831,37 @@ public class RootRepositoryManager extends AbstractNodeRepositoryManager {
         }
         return false;
     }
+
+    /**
+     * Identifies a download: the repository it comes from, whatever its display string says
+     * about its health, the artifact's path, and the options that change what gets downloaded.
+     */
+    private static final class DownloadKey {
+        private final Object repository;
+        private final String path;
+        private final boolean ignoreSHA;
+        private final boolean descriptorCheck;
+
+        private DownloadKey(Node node, ArtifactContext context) {
+            final CmrRepository repo = NodeUtils.getRepository(node);
+            this.repository = (repo != null) ? repo.getRoot() : null;
+            this.path = NodeUtils.getFullPath(node);
+            this.ignoreSHA = context.isIgnoreSHA();
+            this.descriptorCheck = context.forceDescriptorCheck();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof DownloadKey == false)
+                return false;
+            final DownloadKey other = (DownloadKey) obj;
+            return repository == other.repository && path.equals(other.path)
+                    && ignoreSHA == other.ignoreSHA && descriptorCheck == other.descriptorCheck;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(repository) + path.hashCode();
+        }
+    }
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent record of SHA1 verifications.
+ *
+ * Each entry holds the artifact's path (relative to the ledger's root), size,
+ * last modified time, digest and the verdict of the last verification.
+ * As long as size and last modified time are unchanged the recorded
+ * digest is trusted, so new processes don't need to re-hash artifacts
+ * that were verified before.
+ *
+ * The ledger file is append-only, the last entry for a path wins;
+ * it is compacted when loaded if it contains too many stale entries.
+ */
+public class Sha1Ledger {
+
+    public static final String LEDGER_FILE = ".sha1-ledger";
+
+    private static final String SEPARATOR = "\t";
+    private static final String CHARSET = "UTF-8";
+
+    private final File root;
+    private final File ledger;
+    private volatile Map<String, Entry> entries;
+    private boolean truncated; // the last line was cut short, don't append to it
+
+    public Sha1Ledger(File root) {
+        if (root == null)
+            throw new IllegalArgumentException("Null root!");
+        this.root = root;
+        this.ledger = new File(root, LEDGER_FILE);
+    }
+
+    /**
+     * Get the recorded digest, if the artifact didn't change since it was recorded.
+     *
+     * @param artifact the artifact
+     * @return the digest or null
+     */
+    public String getDigest(File artifact) {
+        final Entry entry = getEntries().get(toPath(artifact));
+        if (entry != null && entry.size == artifact.length() && entry.lastModified == artifact.lastModified())
+            return entry.digest;
+        return null;
+    }
+
+    /**
+     * Record a verification.
+     *
+     * @param artifact the artifact
+     * @param digest   the artifact's digest
+     * @param verdict  did the digest match the expected one
+     */
+    public void record(File artifact, String digest, boolean verdict) {
+        if (digest == null)
+            throw new IllegalArgumentException("Null digest!");
+        final String path = toPath(artifact);
+        final Entry entry = new Entry(path, artifact.length(), artifact.lastModified(), digest, verdict);
+        final Entry previous = getEntries().put(path, entry);
+        if (entry.equals(previous))
+            return;
+        synchronized (this) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(ledger, true), CHARSET)) {
+                if (truncated) {
+                    writer.write("\n");
+                    truncated = false;
+                }
+                writer.write(entry.toLine());
+            } catch (IOException e) {
+                // it's only a cache, next process will simply re-hash
+            }
+        }
+    }
+
+    /**
+     * Verify the artifact against the expected digest, using the ledger when possible.
+     *
+     * @param artifact the artifact
+     * @param expected the expected digest
+     * @return the verdict, or null if the artifact could not be hashed
+     */
+    public Boolean verify(File artifact, String expected) throws IOException {
+        String digest = getDigest(artifact);
+        if (digest == null) {
+            digest = IOUtils.sha1(new FileInputStream(artifact));
+            if (digest == null)
+                return null;
+        }
+        final boolean verdict = digest.equals(expected);
+        record(artifact, digest, verdict);
+        return verdict;
+    }
+
+    /**
+     * Re-hash every artifact under the root that has a SHA1 file next to it,
+     * ignoring whatever the ledger says, and record the new verdicts.
+     *
+     * @return the artifacts that failed verification
+     */
+    public List<File> reverifyAll() throws IOException {
+        final List<File> failed = new ArrayList<>();
+        reverify(root, failed);
+        return failed;
+    }
+
+    private void reverify(File dir, List<File> failed) throws IOException {
+        final File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                reverify(file, failed);
+                continue;
+            }
+            final File sha1 = getSha1File(file);
+            if (sha1 == null)
+                continue;
+            final String digest = IOUtils.sha1(new FileInputStream(file));
+            if (digest == null)
+                continue;
+            final boolean verdict = digest.equals(IOUtils.readSha1(new FileInputStream(sha1)));
+            record(file, digest, verdict);
+            if (verdict == false)
+                failed.add(file);
+        }
+    }
+
+    private static File getSha1File(File artifact) {
+        final String name = artifact.getName();
+        if (name.endsWith(".sha1") || name.endsWith(".sha1.local"))
+            return null;
+        File sha1 = new File(artifact.getParentFile(), name + ".sha1");
+        if (sha1.isFile())
+            return sha1;
+        sha1 = new File(artifact.getParentFile(), name + ".sha1.local");
+        return sha1.isFile() ? sha1 : null;
+    }
+
+    private String toPath(File artifact) {
+        final String rootPath = root.getAbsolutePath() + File.separator;
+        final String path = artifact.getAbsolutePath();
+        return path.startsWith(rootPath) ? path.substring(rootPath.length()) : path;
+    }
+
+    private Map<String, Entry> getEntries() {
+        Map<String, Entry> map = entries;
+        if (map == null) {
+            synchronized (this) {
+                map = entries;
+                if (map == null) {
+                    map = load();
+                    entries = map;
+                }
+            }
+        }
+        return map;
+    }
+
+    private Map<String, Entry> load() {
+        final Map<String, Entry> map = new ConcurrentHashMap<>();
+        if (ledger.isFile() == false)
+            return map;
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(ledger), CHARSET))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                final Entry entry = Entry.parse(line);
+                if (entry != null)
+                    map.put(entry.path, entry);
+            }
+            truncated = endsWithoutNewline();
+        } catch (IOException e) {
+            return map;
+        }
+        if (lines > 2 * map.size() + 100)
+            compact(map);
+        return map;
+    }
+
+    private boolean endsWithoutNewline() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(ledger, "r")) {
+            final long length = file.length();
+            if (length == 0)
+                return false;
+            file.seek(length - 1);
+            return file.read() != '\n';
+        }
+    }
+
+    private void compact(Map<String, Entry> map) {
+        try {
+            final File temp = File.createTempFile(LEDGER_FILE, ".tmp", root);
+            try {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), CHARSET))) {
+                    for (Entry entry : map.values()) {
+                        writer.write(entry.toLine());
+                    }
+                }
+                Files.move(temp.toPath(), ledger.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                truncated = false;
+            } finally {
+                temp.delete();
+            }
+        } catch (IOException ignored) {
+            // we'll try again next time
+        }
+    }
+
+    private static class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String digest;
+        private final boolean verdict;
+
+        private Entry(String path, long size, long lastModified, String digest, boolean verdict) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+            this.verdict = verdict;
+        }
+
+        private static Entry parse(String line) {
+            // the path goes last, it's the only field that could contain the separator
+            final String[] parts = line.split(SEPARATOR, 5);
+            if (parts.length != 5)
+                return null;
+            try {
+                return new Entry(parts[4], Long.parseLong(parts[2]), Long.parseLong(parts[3]), parts[0], Boolean.parseBoolean(parts[1]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private String toLine() {
+            return digest + SEPARATOR + verdict + SEPARATOR + size + SEPARATOR + lastModified + SEPARATOR + path + "\n";
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Entry == false)
+                return false;
+            final Entry other = (Entry) obj;
+            return path.equals(other.path) && size == other.size && lastModified == other.lastModified
+                    && digest.equals(other.digest) && verdict == other.verdict;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+    }
+}
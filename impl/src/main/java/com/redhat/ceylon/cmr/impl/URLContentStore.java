@@ -16,14 +16,16 @@
 
 package com.redhat.ceylon.cmr.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.Proxy;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
@@ -32,8 +34,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-
-import javax.xml.bind.DatatypeConverter;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.redhat.ceylon.cmr.api.ArtifactContext;
 import com.redhat.ceylon.cmr.api.ModuleDependencyInfo;
@@ -50,11 +51,11 @@ import com.redhat.ceylon.cmr.api.Overrides;
 import com.redhat.ceylon.cmr.spi.ContentHandle;
 import com.redhat.ceylon.cmr.spi.Node;
 import com.redhat.ceylon.cmr.spi.OpenNode;
+import com.redhat.ceylon.cmr.util.HttpClient;
 import com.redhat.ceylon.cmr.util.WS;
 import com.redhat.ceylon.cmr.util.WS.Link;
 import com.redhat.ceylon.cmr.util.WS.Parser;
 import com.redhat.ceylon.cmr.util.WS.XMLHandler;
-import com.redhat.ceylon.common.Constants;
 import com.redhat.ceylon.common.log.Logger;
 
 /**
@@ -69,9 +70,13 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
     public final static String HERD_SEARCH_MODULES_REL = "http://modules.ceylon-lang.org/rel/search-modules";
 
     private static final String HERD_ORIGIN = "The Herd";
+
+    private static final AtomicReference<HerdResponseCache> responseCache = new AtomicReference<>(); // null means we always ask the Herd
     
     protected final String root;
     protected final Proxy proxy;
+    protected final HttpClient httpClient;
+    protected final CircuitBreaker circuitBreaker;
     private final String herdRequestedApi;
     
     protected String username;
@@ -93,6 +98,8 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
             throw new IllegalArgumentException("Null root url");
         this.root = root;
         this.proxy = proxy;
+        this.httpClient = new HttpClient(proxy, timeout);
+        this.circuitBreaker = new CircuitBreaker(root, log);
         this.herdRequestedApi = apiVersion != null ? apiVersion : "4";
         if(apiVersion != null
                 && !apiVersion.equals("1")
@@ -107,32 +114,35 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
         if(_isHerd == null){
             synchronized(this){
                 if(_isHerd == null){
-                    _isHerd = testHerd();
+                    Boolean herd = testHerd();
+                    if(herd == null)
+                        return false; // we'll know once it's reachable
+                    _isHerd = herd;
                 }
             }
         }
         return _isHerd;
     }
 
-    private boolean testHerd() {
-        if (!connectionAllowed()) {
+    /**
+     * @return null if we couldn't reach the repository to find out
+     */
+    private Boolean testHerd() {
+        if (!isOnline()) {
             // We should never come here, but just in case
             return false;
         }
+        if (!circuitBreaker.allowRequest()) {
+            return null;
+        }
         try{
             // we support both API 1 to 3
             URL rootURL = getURL("?version="+herdRequestedApi);
-            HttpURLConnection con;
-            if (proxy != null) {
-                con = (HttpURLConnection) rootURL.openConnection(proxy);
-            } else {
-                con = (HttpURLConnection) rootURL.openConnection();
-            }
+            HttpURLConnection con = httpClient.open(rootURL, "OPTIONS");
+            if(con == null)
+                return false;
             try{
-                con.setConnectTimeout(timeout);
-                con.setReadTimeout(timeout * Constants.READ_TIMEOUT_MULTIPLIER);
-                con.setRequestMethod("OPTIONS");
-                if(con.getResponseCode() != HttpURLConnection.HTTP_OK)
+                if(getResponseCode(con) != HttpURLConnection.HTTP_OK)
                     return false;
                 String herdVersion = con.getHeaderField("X-Herd-Version");
                 log.debug("Herd version: "+herdVersion);
@@ -147,10 +157,12 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
                 }
                 return ret;
             }finally{
-                con.disconnect();
+                HttpClient.release(con);
             }
         }catch(Exception x){
             log.debug("Failed to determine if remote host is a Herd repo: "+x.getMessage());
+            if(x instanceof IOException && CircuitBreaker.isUnreachable((IOException) x))
+                return null;
             return false;
         }
     }
@@ -171,9 +183,131 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
     }
 
     
+    /**
+     * Can we send requests: we're online, or the repository is on this machine,
+     * and it was not found unreachable lately.
+     */
     protected boolean connectionAllowed() {
+        return isOnline() && circuitBreaker.allowRequest();
+    }
+
+    private boolean isOnline() {
         return !offline || rootIsLocalMachine();
     }
+
+    /**
+     * Get the response code, sending the request if needed, and keep track of whether the repository can be reached.
+     *
+     * @param huc the connection
+     * @return the response code
+     * @throws IOException for any I/O error
+     */
+    protected int getResponseCode(HttpURLConnection huc) throws IOException {
+        final int code;
+        try {
+            code = huc.getResponseCode();
+        } catch (IOException e) {
+            circuitBreaker.recordFailure(e);
+            throw e;
+        }
+        circuitBreaker.recordSuccess();
+        return code;
+    }
+
+    /**
+     * Get the response body, sending the request if needed, and keep track of whether the repository can be reached.
+     *
+     * @param huc the connection
+     * @return the body, closing it releases the connection
+     * @throws IOException for any I/O error, the connection is released then
+     * @see HttpClient#getInputStream(HttpURLConnection)
+     */
+    protected InputStream getInputStream(HttpURLConnection huc) throws IOException {
+        final InputStream stream;
+        try {
+            stream = HttpClient.getInputStream(huc);
+        } catch (IOException e) {
+            circuitBreaker.recordFailure(e);
+            throw e;
+        }
+        circuitBreaker.recordSuccess();
+        return stream;
+    }
+
+    /**
+     * Keep the responses of the Herd's completion and search queries.
+     * The cache is shared by all the repositories of this JVM, this replaces whatever cache they used.
+     *
+     * @param cache the cache, or null to always ask the Herd
+     */
+    public static void setResponseCache(HerdResponseCache cache) {
+        responseCache.set(cache);
+    }
+
+    /**
+     * Keep the responses of the Herd's completion and search queries, unless they are kept already.
+     *
+     * @param cache the cache
+     * @return the cache the repositories of this JVM use: the given one, or the one that was there
+     */
+    public static HerdResponseCache installResponseCache(HerdResponseCache cache) {
+        if (cache == null)
+            throw new IllegalArgumentException("Null cache!");
+        if (responseCache.compareAndSet(null, cache))
+            return cache;
+        final HerdResponseCache installed = responseCache.get();
+        // unless it was just removed
+        return (installed != null) ? installed : installResponseCache(cache);
+    }
+
+    public static HerdResponseCache getResponseCache() {
+        return responseCache.get();
+    }
+
+    /**
+     * Send a Herd query, or answer it from the response cache if we have one.
+     */
+    private void getHerdXML(String url, List<WS.Param> params, XMLHandler handler) throws IOException {
+        final HerdResponseCache cache = responseCache.get();
+        if (cache == null) {
+            WS.getXML(url, params, handler);
+            return;
+        }
+        final String key = WS.getNormalizedURL(url, params);
+        HerdResponseCache.Response response = cache.get(key);
+        if (response == null || response.isFresh(System.currentTimeMillis()) == false) {
+            final HttpURLConnection con = httpClient.open(new URL(WS.getURL(url, params)));
+            if (con == null)
+                throw new IOException("Not an HTTP url: " + url);
+            try {
+                con.addRequestProperty("Accept", "application/xml");
+                if (response != null)
+                    response.addConditionalHeaders(con);
+                final int code = getResponseCode(con);
+                if (code == HttpURLConnection.HTTP_NOT_MODIFIED && response != null) {
+                    log.debug("Herd response still valid for: " + key);
+                    response = cache.revalidated(response, con);
+                } else if (code == HttpURLConnection.HTTP_OK) {
+                    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    IOUtils.copyStream(getInputStream(con), baos, true, false);
+                    final byte[] content = baos.toByteArray();
+                    cache.put(key, content, con);
+                    WS.parseXML(new ByteArrayInputStream(content), handler);
+                    return;
+                } else {
+                    return; // same as WS: no results
+                }
+            } finally {
+                // keep the connection alive for the next request
+                HttpClient.release(con);
+            }
+        }
+        WS.parseXML(new ByteArrayInputStream(response.getContent()), handler);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
     
     private boolean rootIsLocalMachine() {
         if (_isLocalMachine == null) {
@@ -206,10 +340,12 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
     
     public void setUsername(String username) {
         this.username = username;
+        httpClient.setCredentials(username, password);
     }
 
     public void setPassword(String password) {
         this.password = password;
+        httpClient.setCredentials(username, password);
     }
 
     public OpenNode find(Node parent, String child) {
@@ -287,8 +423,10 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
     @Override
     public String getDisplayString() {
         String name = root;
-        if (!connectionAllowed()) {
+        if (!isOnline()) {
             name += " (offline)";
+        } else if (circuitBreaker.isOpen()) {
+            name += " (unreachable)";
         }
         return name;
     }
@@ -305,20 +443,14 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
 
     protected HttpURLConnection head(final URL url) throws IOException {
         if (connectionAllowed()) {
-            final URLConnection conn;
-            if (proxy != null) {
-                conn = url.openConnection(proxy);
-            } else {
-                conn = url.openConnection();
-            }
-            if (conn instanceof HttpURLConnection) {
-                HttpURLConnection huc = (HttpURLConnection) conn;
-                huc.setConnectTimeout(timeout);
-                huc.setReadTimeout(timeout * Constants.READ_TIMEOUT_MULTIPLIER);
-                huc.setRequestMethod("HEAD");
-                addCredentials(huc);
-                int code = huc.getResponseCode();
-                huc.disconnect();
+            final HttpURLConnection huc = httpClient.open(url, "HEAD");
+            if (huc != null) {
+                int code;
+                try {
+                    code = getResponseCode(huc);
+                } finally {
+                    HttpClient.release(huc); // headers stay readable
+                }
                 log.debug("Got " + code + " for url: " + url);
                 if (code == 200) {
                     return huc;
@@ -328,15 +460,77 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
         return null;
     }
 
-    protected void addCredentials(HttpURLConnection conn) throws IOException {
-        if (username != null && password != null) {
-            try {
-                String authString = DatatypeConverter.printBase64Binary((username + ":" + password).getBytes());
-                conn.setRequestProperty("Authorization", "Basic " + authString);
-                conn.connect();
-            } catch (Exception e) {
-                throw new IOException("Cannot set basic authorization.", e);
-            }
+
+    /**
+     * Fetch the node's content, unless it's still the same as the one described by the given validators.
+     *
+     * @param node         the node
+     * @param etag         the entity tag of the content we have, can be null
+     * @param lastModified the last modified time of the content we have, 0 or less if unknown
+     * @return the revalidation, or null if the node was not found or cannot be fetched over HTTP
+     * @throws IOException for any I/O error
+     */
+    public Revalidation revalidate(Node node, String etag, long lastModified) throws IOException {
+        if (connectionAllowed() == false)
+            return null;
+        final URL url = getURL(node);
+        final HttpURLConnection huc = (url != null) ? httpClient.open(url) : null;
+        if (huc == null)
+            return null;
+        if (etag != null)
+            huc.setRequestProperty("If-None-Match", etag);
+        if (lastModified > 0)
+            huc.setIfModifiedSince(lastModified);
+        final int code;
+        try {
+            code = getResponseCode(huc);
+        } catch (IOException | RuntimeException e) {
+            HttpClient.release(huc);
+            throw e;
+        }
+        log.debug("Got " + code + " for url: " + url);
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            HttpClient.release(huc);
+            return new Revalidation(null, etag, lastModified);
+        }
+        if (code != HttpURLConnection.HTTP_OK) {
+            HttpClient.release(huc);
+            return null;
+        }
+        return new Revalidation(HttpClient.getInputStream(huc), huc.getHeaderField("ETag"), huc.getLastModified());
+    }
+
+    /**
+     * Outcome of a revalidation: either not modified, or the new content and its validators.
+     */
+    public static class Revalidation {
+        private final InputStream content;
+        private final String etag;
+        private final long lastModified;
+
+        private Revalidation(InputStream content, String etag, long lastModified) {
+            this.content = content;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public boolean isNotModified() {
+            return content == null;
+        }
+
+        /**
+         * @return the new content, to be closed by the caller, null if not modified
+         */
+        public InputStream getContent() {
+            return content;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
         }
     }
 
@@ -370,7 +564,7 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
                     params.add(WS.param("memberSearchExact", query.isMemberSearchExact()));
                     params.add(WS.param("retrieval", getHerdRetrievalParam(query.getRetrieval())));
                 }
-                WS.getXML(herdCompleteModulesURL, params, new XMLHandler(){
+                getHerdXML(herdCompleteModulesURL, params, new XMLHandler(){
                     @Override
                     public void onOK(Parser p) {
                         parseSearchModulesResponse(p, result, query.getStart());
@@ -454,7 +648,7 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
                     params.add(WS.param("memberSearchExact", query.isMemberSearchExact()));
                     params.add(WS.param("retrieval", getHerdRetrievalParam(query.getRetrieval())));
                 }
-                WS.getXML(herdCompleteVersionsURL, params, new XMLHandler(){
+                getHerdXML(herdCompleteVersionsURL, params, new XMLHandler(){
                     @Override
                     public void onOK(Parser p) {
                         parseCompleteVersionsResponse(p, result, overrides);
@@ -601,7 +795,7 @@ public abstract class URLContentStore extends AbstractRemoteContentStore {
                     params.add(WS.param("memberSearchExact", query.isMemberSearchExact()));
                     params.add(WS.param("retrieval", getHerdRetrievalParam(query.getRetrieval())));
                 }
-                WS.getXML(herdSearchModulesURL, params, new XMLHandler(){
+                getHerdXML(herdSearchModulesURL, params, new XMLHandler(){
                     @Override
                     public void onOK(Parser p) {
                         parseSearchModulesResponse(p, result, query.getStart());
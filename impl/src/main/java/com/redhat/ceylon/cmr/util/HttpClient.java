@@ -0,0 +1,312 @@
+package com.redhat.ceylon.cmr.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import javax.xml.bind.DatatypeConverter;
+
+import com.redhat.ceylon.common.Constants;
+
+/**
+ * HTTP connections shared by all the URL based content stores and WS.
+ *
+ * Connections are never disconnected after a request: response bodies are
+ * drained and closed instead, so the JDK can keep the underlying socket alive
+ * and reuse it for the next request to the same host (the size of the JDK's
+ * per host pool of idle connections is set by the http.maxConnections system property).
+ *
+ * The number of requests in flight to a single host is limited, the limit
+ * is shared by all the clients of this JVM and set by the {@value #PROP_MAX_CONNECTIONS_PER_HOST} system property. A request holds its slot until
+ * its response is released, or until its body stream is closed; a connection
+ * that is simply dropped gives its slot back once it is garbage collected.
+ * A request that cannot get a slot within the connect timeout goes ahead without one,
+ * rather than failing as if the host could not be reached.
+ * Two exceptions: a thread that already holds a slot of the host doesn't wait
+ * for another one, as it would wait for itself, and {@link #detach(HttpURLConnection) detached}
+ * connections don't count, so each client keeping such responses around
+ * can exceed the limit by as many responses as it keeps.
+ */
+public class HttpClient {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    public static final String PROP_MAX_CONNECTIONS_PER_HOST = "ceylon.cmr.http.maxperhost";
+
+    private static final Logger log = Logger.getLogger(HttpClient.class.getName());
+
+    /** Bodies bigger than this are not worth draining to keep a connection alive */
+    private static final int MAX_DRAIN = 64 * 1024;
+
+    private static volatile int maxConnectionsPerHost = getMaxConnectionsProperty();
+    private static final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+    private static final Map<HttpURLConnection, Slot> slots = Collections.synchronizedMap(new WeakHashMap<HttpURLConnection, Slot>());
+    private static final ReferenceQueue<HttpURLConnection> collected = new ReferenceQueue<>();
+
+    private final Proxy proxy;
+    private final int timeout;
+    private volatile String username;
+    private volatile String password;
+
+    public HttpClient(Proxy proxy, int timeout) {
+        this.proxy = proxy;
+        this.timeout = timeout;
+    }
+
+    private static int getMaxConnectionsProperty() {
+        final String value = System.getProperty(PROP_MAX_CONNECTIONS_PER_HOST);
+        if (value != null) {
+            try {
+                final int max = Integer.parseInt(value.trim());
+                if (max > 0)
+                    return max;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    }
+
+    /**
+     * Set the maximum number of requests in flight to a single host, for all clients of this JVM,
+     * overriding the system property.
+     *
+     * @param max the maximum, at least 1
+     */
+    public static void setMaxConnectionsPerHost(int max) {
+        if (max < 1)
+            throw new IllegalArgumentException("Max connections per host must be positive: " + max);
+        maxConnectionsPerHost = max;
+        hosts.clear(); // requests in flight will release their old slots, new ones get the new limit
+    }
+
+    public static int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setCredentials(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Open a connection, with this client's proxy, timeouts and credentials.
+     * It must be given back with {@link #release(HttpURLConnection)}, or by closing
+     * the stream from {@link #getInputStream(HttpURLConnection)}.
+     *
+     * @param url    the url
+     * @param method the request method
+     * @return the connection, or null if the url is not HTTP
+     * @throws IOException for any I/O error
+     */
+    public HttpURLConnection open(URL url, String method) throws IOException {
+        final URLConnection conn = (proxy != null) ? url.openConnection(proxy) : url.openConnection();
+        if (conn instanceof HttpURLConnection == false)
+            return null;
+        final HttpURLConnection huc = (HttpURLConnection) conn;
+        huc.setConnectTimeout(timeout);
+        huc.setReadTimeout(timeout * Constants.READ_TIMEOUT_MULTIPLIER);
+        huc.setRequestMethod(method);
+        addCredentials(huc);
+        acquire(huc, url);
+        return huc;
+    }
+
+    /**
+     * Open a GET connection.
+     *
+     * @see #open(URL, String)
+     */
+    public HttpURLConnection open(URL url) throws IOException {
+        return open(url, "GET");
+    }
+
+    protected void addCredentials(HttpURLConnection conn) {
+        final String user = username;
+        final String pass = password;
+        if (user != null && pass != null) {
+            String authString = DatatypeConverter.printBase64Binary((user + ":" + pass).getBytes());
+            conn.setRequestProperty("Authorization", "Basic " + authString);
+        }
+    }
+
+    /**
+     * Get the response body; closing it releases the connection.
+     *
+     * @param conn the connection
+     * @return the body
+     * @throws IOException for any I/O error, the connection is released then
+     */
+    public static InputStream getInputStream(final HttpURLConnection conn) throws IOException {
+        final InputStream is;
+        try {
+            is = conn.getInputStream();
+        } catch (IOException | RuntimeException e) {
+            release(conn);
+            throw e;
+        }
+        return new FilterInputStream(is) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    freeSlot(conn);
+                }
+            }
+        };
+    }
+
+    /**
+     * Stop counting the connection against its host's limit, without closing it.
+     * For responses whose body might only be read much later, if ever: whoever keeps
+     * them should keep only a few, since they are not limited anymore.
+     *
+     * @param conn the connection
+     */
+    public static void detach(HttpURLConnection conn) {
+        freeSlot(conn);
+    }
+
+    /**
+     * Done with the connection: drain what's left of the response and close it,
+     * so the socket can be reused.
+     *
+     * @param conn the connection, can be null
+     */
+    public static void release(HttpURLConnection conn) {
+        if (conn == null)
+            return;
+        try {
+            InputStream is;
+            try {
+                is = conn.getInputStream();
+            } catch (IOException e) {
+                is = conn.getErrorStream();
+            }
+            if (is != null) {
+                try {
+                    if (drain(is) == false) {
+                        conn.disconnect(); // too big to drain, not worth keeping
+                    }
+                } finally {
+                    is.close();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            conn.disconnect();
+        } finally {
+            freeSlot(conn);
+        }
+    }
+
+    private static boolean drain(InputStream is) throws IOException {
+        final byte[] buffer = new byte[8192];
+        int total = 0;
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            total += read;
+            if (total > MAX_DRAIN)
+                return false;
+        }
+        return true;
+    }
+
+    private void acquire(HttpURLConnection conn, URL url) throws IOException {
+        freeCollectedSlots();
+        final String name = url.getHost() + ":" + url.getPort();
+        Host host = hosts.get(name);
+        if (host == null) {
+            final Host newHost = new Host(maxConnectionsPerHost);
+            host = hosts.putIfAbsent(name, newHost);
+            if (host == null)
+                host = newHost;
+        }
+        if (host.isHeldByCurrentThread())
+            return;
+        try {
+            if (timeout > 0) {
+                if (host.semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS) == false) {
+                    log.warning("Timed out waiting for one of the " + host.max + " connections to " + name + ", going ahead without one");
+                    return;
+                }
+            } else {
+                host.semaphore.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + name, e);
+        }
+        final Slot slot = new Slot(conn, host);
+        host.slots.add(slot);
+        slots.put(conn, slot);
+    }
+
+    private static void freeSlot(HttpURLConnection conn) {
+        final Slot slot = slots.remove(conn);
+        if (slot != null)
+            slot.free();
+    }
+
+    private static void freeCollectedSlots() {
+        Reference<? extends HttpURLConnection> reference;
+        while ((reference = collected.poll()) != null) {
+            ((Slot) reference).free();
+        }
+    }
+
+    private static final class Host {
+        private final int max;
+        private final Semaphore semaphore;
+        // keeps the slots reachable until they are freed, even if their connection is collected
+        private final Set<Slot> slots = Collections.newSetFromMap(new ConcurrentHashMap<Slot, Boolean>());
+
+        private Host(int max) {
+            this.max = max;
+            this.semaphore = new Semaphore(max, true);
+        }
+
+        private boolean isHeldByCurrentThread() {
+            final long thread = Thread.currentThread().getId();
+            for (Slot slot : slots) {
+                if (slot.thread == thread)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Slot extends WeakReference<HttpURLConnection> {
+        private final Host host;
+        private final long thread;
+        private final AtomicBoolean free = new AtomicBoolean();
+
+        private Slot(HttpURLConnection conn, Host host) {
+            super(conn, collected);
+            this.host = host;
+            this.thread = Thread.currentThread().getId();
+        }
+
+        private void free() {
+            if (free.compareAndSet(false, true)) {
+                host.slots.remove(this);
+                host.semaphore.release();
+            }
+        }
+    }
+}
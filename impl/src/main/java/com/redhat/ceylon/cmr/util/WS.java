@@ -7,7 +7,10 @@ import java.net.HttpURLConnection;
 import java.net.Proxy;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -17,7 +20,6 @@ import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
-import com.redhat.ceylon.common.Constants;
 import com.redhat.ceylon.common.config.DefaultToolOptions;
 
 /**
@@ -104,23 +106,17 @@ public class WS {
     }
     
     public static void getXML(String url, List<Param> params, XMLHandler handler){
-        if(params != null)
-            url += toQueryString(params);
-        getXML(url, handler);
+        getXML(getURL(url, params), handler);
     }
     
     public static void getXML(String url, XMLHandler handler){
         try{
             URL endpoint = new URL(url);
-            HttpURLConnection connection;
             Proxy proxy = DefaultToolOptions.getDefaultProxy();
-            if (proxy != null) {
-                connection = (HttpURLConnection) endpoint.openConnection(proxy);
-            } else {
-                connection = (HttpURLConnection) endpoint.openConnection();
-            }
-            connection.setConnectTimeout((int) DefaultToolOptions.getDefaultTimeout());
-            connection.setReadTimeout((int) DefaultToolOptions.getDefaultTimeout() * Constants.READ_TIMEOUT_MULTIPLIER);
+            HttpClient client = new HttpClient(proxy, (int) DefaultToolOptions.getDefaultTimeout());
+            HttpURLConnection connection = client.open(endpoint);
+            if(connection == null)
+                throw new IOException("Not an HTTP url: "+url);
             getXML(connection, handler);
         }catch(IOException x){
             throw new RuntimeException(x);
@@ -133,22 +129,30 @@ public class WS {
             connection.connect();
             try{
                 if(connection.getResponseCode() == 200){
-                    InputStream is = connection.getInputStream();
-                    try{
-                        XMLInputFactory factory = XMLInputFactory.newFactory();
-                        XMLStreamReader reader = factory.createXMLStreamReader(is);
-                        try{
-                            Parser p = new Parser(reader);
-                            handler.onOK(p);
-                        }finally{
-                            reader.close();
-                        }
-                    }finally{
-                        is.close();
-                    }
+                    parseXML(connection.getInputStream(), handler);
                 }
             }finally{
-                connection.disconnect();
+                // keep the connection alive for the next request
+                HttpClient.release(connection);
+            }
+        }catch(IOException x){
+            throw new RuntimeException(x);
+        }
+    }
+
+    public static void parseXML(InputStream is, XMLHandler handler){
+        try{
+            try{
+                XMLInputFactory factory = XMLInputFactory.newFactory();
+                XMLStreamReader reader = factory.createXMLStreamReader(is);
+                try{
+                    Parser p = new Parser(reader);
+                    handler.onOK(p);
+                }finally{
+                    reader.close();
+                }
+            }finally{
+                is.close();
             }
         }catch(XMLStreamException x){
             throw new RuntimeException(x);
@@ -157,6 +161,29 @@ public class WS {
         }
     }
 
+    public static String getURL(String url, List<Param> params){
+        if(params != null)
+            url += toQueryString(params);
+        return url;
+    }
+
+    /**
+     * Same as getURL, but with the parameters sorted by name, so that the same
+     * request always gets the same URL, whatever order its parameters were added in.
+     */
+    public static String getNormalizedURL(String url, List<Param> params){
+        if(params == null)
+            return url;
+        List<Param> sorted = new ArrayList<Param>(params);
+        Collections.sort(sorted, new Comparator<Param>(){
+            @Override
+            public int compare(Param a, Param b) {
+                return a.name.compareTo(b.name);
+            }
+        });
+        return url + toQueryString(sorted);
+    }
+
     public static List<Link> collectLinks(HttpURLConnection con) {
         List<String> linkHeaders = con.getHeaderFields().get("Link");
         List<Link> ret = new LinkedList<Link>();
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.proxy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.impl.DaemonThreadFactory;
+import com.redhat.ceylon.cmr.impl.DigestingInputStream;
+import com.redhat.ceylon.common.log.Logger;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embeddable HTTP server that serves the artifacts of a repository manager,
+ * with the same URL layout as a Ceylon repository, so that a RemoteContentStore can use it.
+ *
+ * Backed by a RootRepositoryManager, it's a caching proxy: the first request for an artifact
+ * fetches it from the manager's remote repositories into its cache, later requests are served
+ * from the cache. Concurrent requests for the same file share a single lookup.
+ *
+ * Files are served with their size, last modified time and, when their SHA1 is known, an ETag,
+ * and conditional requests are answered with 304 Not Modified.
+ */
+public class RepositoryProxyServer {
+
+    public static final int DEFAULT_THREADS = 16;
+
+    private static final String SHA1 = ArtifactContext.SHA1;
+
+    private final RepositoryManager manager;
+    private final Logger log;
+    private final ConcurrentMap<String, FutureTask<File>> lookups = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public RepositoryProxyServer(RepositoryManager manager, Logger log) {
+        if (manager == null)
+            throw new IllegalArgumentException("Null manager!");
+        if (log == null)
+            throw new IllegalArgumentException("Null log!");
+        this.manager = manager;
+        this.log = log;
+    }
+
+    /**
+     * Start serving.
+     *
+     * @param address the address to listen to, port 0 picks a free port
+     * @param threads the number of requests served concurrently
+     * @throws IOException for any I/O error
+     */
+    public synchronized void start(InetSocketAddress address, int threads) throws IOException {
+        if (server != null)
+            throw new IllegalStateException("Already started: " + server.getAddress());
+        final HttpServer httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        executor = DaemonThreadFactory.newFixedThreadPool("ceylon-cmr-proxy", threads);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        server = httpServer;
+        log.info("Serving " + manager + " at " + getAddress());
+    }
+
+    public void start(InetSocketAddress address) throws IOException {
+        start(address, DEFAULT_THREADS);
+    }
+
+    /**
+     * Stop serving, waiting at most the given time for the requests being served.
+     *
+     * @param delay the time in seconds
+     */
+    public synchronized void stop(int delay) {
+        if (server == null)
+            return;
+        server.stop(delay);
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+
+    public synchronized InetSocketAddress getAddress() {
+        return (server != null) ? server.getAddress() : null;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final boolean head = "HEAD".equals(method);
+        if (head == false && "GET".equals(method) == false) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        final String path = exchange.getRequestURI().getPath();
+        final File file;
+        try {
+            file = lookup(path);
+        } catch (Exception e) {
+            log.warning("Failed to get " + path + ": " + e);
+            exchange.sendResponseHeaders(502, -1);
+            return;
+        }
+        if (file == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        final boolean signature = path.endsWith(SHA1);
+        final byte[] content = signature ? getSha1(file).getBytes("ASCII") : null;
+        final long length = signature ? content.length : file.length();
+
+        final Headers headers = exchange.getResponseHeaders();
+        final String etag = signature ? null : getETag(file);
+        if (etag != null)
+            headers.set("ETag", etag);
+        final long lastModified = file.lastModified();
+        headers.set("Last-Modified", formatDate(lastModified));
+        if (isNotModified(exchange.getRequestHeaders(), etag, lastModified)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        headers.set("Content-Type", "application/octet-stream");
+        if (head) {
+            headers.set("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            if (signature)
+                os.write(content);
+            else
+                Files.copy(file.toPath(), os);
+        }
+    }
+
+    /**
+     * Find the file for a request path, fetching it if needed.
+     * A signature request gets the file it signs.
+     */
+    private File lookup(final String path) throws Exception {
+        final FutureTask<File> task = new FutureTask<>(new Callable<File>() {
+            public File call() throws Exception {
+                final ArtifactContext context = toArtifactContext(path.endsWith(SHA1) ? path.substring(0, path.length() - SHA1.length()) : path);
+                return (context != null) ? manager.getArtifact(context) : null;
+            }
+        });
+        FutureTask<File> lookup = lookups.putIfAbsent(path, task);
+        if (lookup == null) {
+            lookup = task;
+            try {
+                task.run();
+            } finally {
+                lookups.remove(path, task);
+            }
+        }
+        try {
+            return lookup.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Map a path of the repository layout, i.e. /org/acme/1.0/org.acme-1.0.car, to its artifact.
+     *
+     * @param path the path
+     * @return the artifact, or null if the path is not one of an artifact
+     */
+    static ArtifactContext toArtifactContext(String path) {
+        final String[] segments = path.replaceAll("^/+|/+$", "").split("/+");
+        if (segments.length < 3)
+            return null;
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < segments.length - 2; i++) {
+            if (i > 0)
+                name.append('.');
+            name.append(segments[i]);
+        }
+        final String version = segments[segments.length - 2];
+        final String fileName = segments[segments.length - 1];
+        final String suffix;
+        if (ArtifactContext.MODULE_PROPERTIES.equals(fileName) || ArtifactContext.MODULE_XML.equals(fileName)) {
+            suffix = fileName;
+        } else {
+            final String prefix = name + "-" + version;
+            if (fileName.startsWith(prefix) == false || fileName.length() == prefix.length())
+                return null;
+            suffix = fileName.substring(prefix.length());
+        }
+        final ArtifactContext context = new ArtifactContext(name.toString(), version, suffix);
+        context.setThrowErrorIfMissing(false);
+        return context;
+    }
+
+    private static String getETag(File file) throws IOException {
+        final String sha1 = readSha1(file);
+        return (sha1 != null) ? "\"" + sha1 + "\"" : null;
+    }
+
+    /**
+     * The SHA1 we already know, from the repository or from the cache.
+     */
+    private static String readSha1(File file) throws IOException {
+        for (String name : new String[]{ file.getName() + SHA1, file.getName() + SHA1 + ".local" }) {
+            final File sha1 = new File(file.getParentFile(), name);
+            if (sha1.isFile()) {
+                final String digest = new String(Files.readAllBytes(sha1.toPath()), "ASCII").trim();
+                if (digest.isEmpty() == false)
+                    return digest;
+            }
+        }
+        return null;
+    }
+
+    private static String getSha1(File file) throws IOException {
+        final String sha1 = readSha1(file);
+        if (sha1 != null)
+            return sha1;
+        try (DigestingInputStream digests = new DigestingInputStream(new FileInputStream(file))) {
+            final byte[] buffer = new byte[8192];
+            while (digests.read(buffer) != -1) {
+                // the digest sees every byte
+            }
+            return digests.getSha1();
+        }
+    }
+
+    private static boolean isNotModified(Headers request, String etag, long lastModified) {
+        final String ifNoneMatch = request.getFirst("If-None-Match");
+        if (ifNoneMatch != null)
+            return etag != null && (ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim()));
+        final String ifModifiedSince = request.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                // HTTP dates have a one second resolution
+                return lastModified / 1000 <= newDateFormat().parse(ifModifiedSince).getTime() / 1000;
+            } catch (java.text.ParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String formatDate(long time) {
+        return newDateFormat().format(new Date(time));
+    }
+
+    private static SimpleDateFormat newDateFormat() {
+        final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.cmr.spi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+
+/**
+ * Stream of a whole local file.
+ *
+ * Content stores that get such a stream can copy the file itself,
+ * e.g. link it or let the OS transfer it, instead of copying it byte by byte.
+ */
+public class FileBackedInputStream extends FileInputStream {
+
+    private final File file;
+
+    public FileBackedInputStream(File file) throws FileNotFoundException {
+        super(file);
+        this.file = file;
+    }
+
+    /**
+     * Get the file behind this stream.
+     * Only meaningful as long as nothing was read from the stream.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+}
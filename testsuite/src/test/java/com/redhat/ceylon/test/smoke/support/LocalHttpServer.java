@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import com.redhat.ceylon.cmr.api.CmrRepository;
+import com.redhat.ceylon.cmr.impl.DefaultRepository;
+import com.redhat.ceylon.cmr.impl.RemoteContentStore;
+import com.redhat.ceylon.common.log.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP servers on a free local port, standing in for remote repositories.
+ * Servers must be stopped by the tests that start them.
+ */
+public final class LocalHttpServer {
+
+    private LocalHttpServer() {
+    }
+
+    /**
+     * Start a server handling every request on its calling thread.
+     *
+     * @param handler the handler of all the paths
+     * @return the started server
+     * @throws IOException for any I/O error
+     */
+    public static HttpServer start(HttpHandler handler) throws IOException {
+        return start(handler, null);
+    }
+
+    /**
+     * Start a server.
+     *
+     * @param handler  the handler of all the paths
+     * @param executor the executor of the requests, null to handle them one at a time
+     * @return the started server
+     * @throws IOException for any I/O error
+     */
+    public static HttpServer start(HttpHandler handler, Executor executor) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", handler);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Serve files from memory, recording each request as its method and path.
+     *
+     * @param files    the contents, by path
+     * @param requests where to record the requests
+     * @return the started server
+     * @throws IOException for any I/O error
+     */
+    public static HttpServer serveFiles(final Map<String, byte[]> files, final List<String> requests) throws IOException {
+        return start(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String method = exchange.getRequestMethod();
+                String path = exchange.getRequestURI().getPath();
+                requests.add(method + " " + path);
+                byte[] content = files.get(path);
+                if (content == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else if ("HEAD".equals(method)) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, content.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(content);
+                    }
+                }
+                exchange.close();
+            }
+        });
+    }
+
+    public static String getURL(HttpServer server) {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @param server the server
+     * @param log    the log
+     * @return a remote repository of the server
+     */
+    public static CmrRepository newRemoteRepository(HttpServer server, Logger log) {
+        return new DefaultRepository(new RemoteContentStore(getURL(server), log, false, 60000, java.net.Proxy.NO_PROXY).createRoot());
+    }
+
+    /**
+     * @param requests the requests recorded by {@link #serveFiles(Map, List)}
+     * @param path     the path
+     * @return true if the path was requested
+     */
+    public static boolean containsPath(List<String> requests, String path) {
+        return filterPath(requests, path).isEmpty() == false;
+    }
+
+    /**
+     * @param requests the requests recorded by {@link #serveFiles(Map, List)}
+     * @param path     the path
+     * @return the requests of the path
+     */
+    public static List<String> filterPath(List<String> requests, String path) {
+        List<String> result = new ArrayList<>();
+        synchronized (requests) {
+            for (String request : requests) {
+                if (request.endsWith(" " + path))
+                    result.add(request);
+            }
+        }
+        return result;
+    }
+}
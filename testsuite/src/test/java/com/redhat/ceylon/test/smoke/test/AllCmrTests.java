@@ -28,7 +28,25 @@ import org.junit.runners.Suite.SuiteClasses;
         SmokeTestCase.class,
         HerdTestCase.class,
         BuilderTestCase.class,
-        CallbackTestCase.class
+        CallbackTestCase.class,
+        ConcurrentLookupTestCase.class,
+        BatchTestCase.class,
+        NegativeCacheTestCase.class,
+        DownloadTestCase.class,
+        HttpClientTestCase.class,
+        ResumeDownloadTestCase.class,
+        CachingRepositoryManagerTestCase.class,
+        StaleWhileRevalidateTestCase.class,
+        ContentAddressedStoreTestCase.class,
+        CacheCollectorTestCase.class,
+        Sha1LedgerTestCase.class,
+        HotContentCacheTestCase.class,
+        ProxyServerTestCase.class,
+        CircuitBreakerTestCase.class,
+        ModuleIndexTestCase.class,
+        ModuleNamesTestCase.class,
+        HerdResponseCacheTestCase.class,
+        FileContentStoreTestCase.class
 })
 public class AllCmrTests {
 }
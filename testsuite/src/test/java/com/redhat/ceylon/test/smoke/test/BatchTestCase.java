@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.api.AbstractRepositoryManager;
+import com.redhat.ceylon.cmr.api.ArtifactBatchResult;
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.JDKRepository;
+import com.redhat.ceylon.cmr.impl.LazyArtifactResult;
+import com.redhat.ceylon.cmr.impl.LookupCaching;
+import com.redhat.ceylon.cmr.impl.SimpleRepositoryManager;
+import com.redhat.ceylon.model.cmr.ArtifactResult;
+import com.redhat.ceylon.model.cmr.ImportType;
+import com.redhat.ceylon.model.cmr.RepositoryException;
+
+/**
+ * Batch lookups, and the resolution of dependency graphs on the batch executor.
+ */
+public class BatchTestCase extends AbstractTest {
+
+    @Test
+    public void testBatch() throws Exception {
+        RepositoryManagerBuilder builder = getRepositoryManagerBuilder(false, 60000, java.net.Proxy.NO_PROXY);
+        builder.batchThreads(4);
+        RepositoryManager manager = builder.buildRepository();
+
+        ArtifactContext missing = new ArtifactContext("org.jboss.acme.missing", "1.0.0.Final");
+        ArtifactContext failing = new ArtifactContext("org.jboss.acme.missing", "2.0.0.Final");
+        failing.setThrowErrorIfMissing(true);
+        List<ArtifactBatchResult> results = manager.getArtifactResultBatch(Arrays.asList(
+                new ArtifactContext("org.jboss.acme", "1.0.0.Final"),
+                missing,
+                failing,
+                new ArtifactContext(RepositoryManager.DEFAULT_MODULE, null)));
+        Assert.assertEquals(4, results.size());
+        Assert.assertTrue(results.get(0).isFound());
+        Assert.assertEquals("org.jboss.acme", results.get(0).getResult().name());
+        Assert.assertSame(missing, results.get(1).getContext());
+        Assert.assertFalse(results.get(1).isFound());
+        Assert.assertFalse(results.get(1).isFailed());
+        Assert.assertTrue(results.get(2).isFailed());
+        Assert.assertTrue(results.get(3).isFound());
+    }
+
+    @Test
+    public void testBatchGroupsShareLookupCaching() throws Exception {
+        final List<String> uncached = Collections.synchronizedList(new ArrayList<String>());
+        SimpleRepositoryManager manager = new SimpleRepositoryManager(new JDKRepository(), log) {
+            @Override
+            public ArtifactResult getArtifactResult(ArtifactContext context) throws RepositoryException {
+                if (LookupCaching.isEnabled() == false)
+                    uncached.add(context.toString());
+                if ("org.acme.broken".equals(context.getName()))
+                    throw new IllegalStateException("broken " + context);
+                return null;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        manager.setBatchExecutor(executor);
+        List<ArtifactBatchResult> results;
+        try {
+            results = manager.getArtifactResultBatch(Arrays.asList(
+                    new ArtifactContext("org.acme.one", "1.0", ArtifactContext.CAR),
+                    new ArtifactContext("org.acme.one", "1.0", ArtifactContext.JAR),
+                    new ArtifactContext("org.acme.broken", "1.0", ArtifactContext.CAR),
+                    new ArtifactContext("org.acme.two", "1.0", ArtifactContext.CAR)));
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(4, results.size());
+        Assert.assertTrue(uncached.toString(), uncached.isEmpty());
+        Assert.assertFalse(results.get(0).isFailed());
+        Assert.assertFalse(results.get(1).isFailed());
+        // an error only fails its own lookup
+        Assert.assertTrue(results.get(2).getError() instanceof IllegalStateException);
+        Assert.assertFalse(results.get(3).isFailed());
+    }
+
+    @Test
+    public void testConcurrentResolver() throws Exception {
+        RepositoryManagerBuilder builder = getRepositoryManagerBuilder(false, 60000, java.net.Proxy.NO_PROXY);
+        builder.batchThreads(4);
+        RepositoryManager manager = builder.buildRepository();
+        ArtifactContext context = new ArtifactContext("old-jar", "1.2.CR1", ArtifactContext.JAR);
+        File[] files = manager.resolve(context);
+        Assert.assertNotNull(files);
+        Assert.assertEquals(3, files.length);
+        // dependents always come before their dependencies
+        Assert.assertEquals("old-jar-1.2.CR1.jar", files[0].getName());
+        Assert.assertEquals("moduletest-0.1.car", files[1].getName());
+    }
+
+    @Test
+    public void testBatchThreadsShared() throws Exception {
+        AbstractRepositoryManager first = (AbstractRepositoryManager) getRepositoryManagerBuilder(false, 60000, null).batchThreads(2).buildRepository();
+        AbstractRepositoryManager second = (AbstractRepositoryManager) getRepositoryManagerBuilder(false, 60000, null).batchThreads(4).buildRepository();
+        Assert.assertNotNull(first.getBatchExecutor());
+        Assert.assertSame(first.getBatchExecutor(), second.getBatchExecutor());
+    }
+
+    @Test
+    public void testMissingOptionalDependency() throws Exception {
+        LazyArtifactResult result = new LazyArtifactResult(getRepositoryManager(), "org.acme.missing", "1.0", ImportType.OPTIONAL);
+        Assert.assertNull(result.artifact());
+        Assert.assertTrue(result.dependencies().isEmpty());
+        Assert.assertNull(result.repository());
+        Assert.assertNull(result.type());
+        Assert.assertNull(result.repositoryDisplayString());
+        Assert.assertNull(result.filter());
+    }
+}
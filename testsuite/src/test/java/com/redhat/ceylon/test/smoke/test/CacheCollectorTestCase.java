@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.CacheCollector;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.test.smoke.support.LocalHttpServer;
+
+/**
+ * Evictions of the cache beyond its quota.
+ */
+public class CacheCollectorTestCase extends AbstractTest {
+
+    @Test
+    public void testCacheCollector() throws Exception {
+        File root = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            long old = System.currentTimeMillis() - 2 * CacheCollector.DEFAULT_MIN_AGE;
+            File older = new File(root, "org/acme/1.0/org.acme-1.0.car");
+            File newer = new File(root, "org/acme/2.0/org.acme-2.0.car");
+            File recent = new File(root, "org/acme/3.0/org.acme-3.0.car");
+            for (File file : Arrays.asList(older, newer, recent)) {
+                file.getParentFile().mkdirs();
+                Files.write(file.toPath(), new byte[100]);
+            }
+            older.setLastModified(old - 1000);
+            newer.setLastModified(old);
+
+            CacheCollector collector = new CacheCollector(root);
+            Assert.assertEquals(3, collector.getUsage().getVersions());
+            Assert.assertEquals(300, collector.getUsage().getSize());
+
+            // the least recently used goes first, the recently used one stays even if we're over quota
+            collector.setMaxSize(150);
+            CacheCollector.Usage usage = collector.collect();
+            Assert.assertEquals(2, usage.getEvictedVersions());
+            Assert.assertEquals(200, usage.getFreed());
+            Assert.assertFalse(older.getParentFile().exists());
+            Assert.assertFalse(newer.getParentFile().exists());
+            Assert.assertTrue(recent.exists());
+        } finally {
+            IOUtils.deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testCacheCollectorSkipsLockedArtifacts() throws Exception {
+        File root = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            File artifact = new File(root, "org/acme/1.0/org.acme-1.0.car");
+            artifact.getParentFile().mkdirs();
+            Files.write(artifact.toPath(), new byte[100]);
+            File lockFile = new File(artifact.getParentFile(), ".org.acme-1.0.car.lock");
+            Files.write(lockFile.toPath(), new byte[0]);
+            long old = System.currentTimeMillis() - 3 * CacheCollector.DEFAULT_MIN_AGE;
+            artifact.setLastModified(old);
+            lockFile.setLastModified(old);
+
+            CacheCollector collector = new CacheCollector(root);
+            collector.setMaxAge(CacheCollector.DEFAULT_MIN_AGE);
+            // somebody is publishing it
+            try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+                 FileLock lock = raf.getChannel().lock()) {
+                Assert.assertEquals(0, collector.collect().getEvictedVersions());
+                Assert.assertTrue(artifact.exists());
+            }
+
+            CacheCollector.Usage usage = collector.collect();
+            Assert.assertEquals(1, usage.getEvictedVersions());
+            Assert.assertFalse(artifact.exists());
+            // whoever waits on it must keep locking the same file
+            Assert.assertTrue(lockFile.exists());
+            Assert.assertEquals(0, collector.getUsage().getVersions());
+        } finally {
+            IOUtils.deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testCacheAccessRecordedWithQuota() throws Exception {
+        final String path = "/org/acme/remote/1.0/org.acme.remote-1.0.car";
+        HttpServer server = LocalHttpServer.serveFiles(Collections.singletonMap(path, "remote".getBytes("ASCII")), new ArrayList<String>());
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            ArtifactContext context = new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR);
+            // without a quota nobody needs to know
+            RepositoryManager manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(server, log))
+                    .buildRepository();
+            Assert.assertNotNull(manager.getArtifact(context));
+            File file = manager.getArtifact(context);
+            Assert.assertNotNull(file);
+            File marker = new File(file.getParentFile(), ".accessed");
+            Assert.assertFalse(marker.exists());
+
+            manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(server, log))
+                    .cacheQuota(1024 * 1024, 0)
+                    .buildRepository();
+            Assert.assertNotNull(manager.getArtifact(context));
+            Assert.assertTrue(marker.exists());
+
+            // and it's not touched again for a while
+            long touched = System.currentTimeMillis() - 60 * 1000L;
+            marker.setLastModified(touched);
+            Assert.assertNotNull(manager.getArtifact(context));
+            Assert.assertEquals(touched / 1000, marker.lastModified() / 1000);
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.impl.CachingRepositoryManager;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.test.smoke.support.LocalHttpServer;
+
+/**
+ * Revalidation of the artifacts of a caching repository manager.
+ */
+public class CachingRepositoryManagerTestCase extends AbstractTest {
+
+    @Test
+    public void testCachingRepositoryManagerRevalidation() throws Exception {
+        final String path = "/org/acme/remote/1.0/org.acme.remote-1.0.car";
+        final AtomicReference<String> version = new AtomicReference<>("v1");
+        final List<String> revalidations = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer server = LocalHttpServer.start(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (path.equals(exchange.getRequestURI().getPath()) == false) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                String etag = "\"" + version.get() + "\"";
+                String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                byte[] content = ("content " + version.get()).getBytes("ASCII");
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (ifNoneMatch != null)
+                    revalidations.add(etag.equals(ifNoneMatch) ? "304" : "200");
+                if (etag.equals(ifNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, content.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(content);
+                    }
+                }
+                exchange.close();
+            }
+        });
+        File cachingDir = Files.createTempDirectory("cmr-caching").toFile();
+        try {
+            CachingRepositoryManager manager = new CachingRepositoryManager(LocalHttpServer.newRemoteRepository(server, log), cachingDir, log);
+            Assert.assertEquals("content v1", readArtifact(manager));
+
+            // not modified, we keep ours
+            Assert.assertEquals("content v1", readArtifact(manager));
+            Assert.assertEquals(Arrays.asList("304"), revalidations);
+
+            // modified, we get the new one
+            version.set("v2");
+            Assert.assertEquals("content v2", readArtifact(manager));
+            Assert.assertEquals(Arrays.asList("304", "200"), revalidations);
+
+            // young enough, nobody asks
+            manager.setMaxAge(60000);
+            version.set("v3");
+            Assert.assertEquals("content v2", readArtifact(manager));
+            Assert.assertEquals(Arrays.asList("304", "200"), revalidations);
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(cachingDir);
+        }
+    }
+
+    private static String readArtifact(RepositoryManager manager) throws IOException {
+        File file = manager.getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR));
+        Assert.assertNotNull(file);
+        return new String(Files.readAllBytes(file.toPath()), "ASCII");
+    }
+}
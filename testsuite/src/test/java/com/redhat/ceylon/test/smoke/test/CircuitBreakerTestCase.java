@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.FileNotFoundException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.impl.CircuitBreaker;
+
+/**
+ * Skipping repositories whose hosts keep failing.
+ */
+public class CircuitBreakerTestCase extends AbstractTest {
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        int threshold = CircuitBreaker.getFailureThreshold();
+        long coolDown = CircuitBreaker.getCoolDown();
+        CircuitBreaker.setDefaults(2, 0);
+        try {
+            CircuitBreaker breaker = new CircuitBreaker("http://localhost:1", log);
+            // a missing file is no sign of a missing host
+            breaker.recordFailure(new FileNotFoundException());
+            breaker.recordFailure(new ConnectException());
+            Assert.assertFalse(breaker.isOpen());
+            breaker.recordFailure(new ConnectException());
+            Assert.assertTrue(breaker.isOpen());
+
+            // cooled down, a single failure opens it again
+            Assert.assertTrue(breaker.allowRequest());
+            Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+            breaker.recordFailure(new SocketTimeoutException());
+            Assert.assertTrue(breaker.isOpen());
+
+            // a single success closes it
+            Assert.assertTrue(breaker.allowRequest());
+            breaker.recordSuccess();
+            Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+            CircuitBreaker.setDefaults(2, 60 * 1000L);
+            breaker.recordFailure(new ConnectException());
+            breaker.recordFailure(new ConnectException());
+            Assert.assertFalse(breaker.allowRequest());
+        } finally {
+            CircuitBreaker.setDefaults(threshold, coolDown);
+        }
+    }
+
+    @Test
+    public void testCircuitBreakerSingleTrial() throws Exception {
+        int threshold = CircuitBreaker.getFailureThreshold();
+        long coolDown = CircuitBreaker.getCoolDown();
+        CircuitBreaker.setDefaults(1, 200);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final CircuitBreaker breaker = new CircuitBreaker("http://localhost:1", log);
+            Callable<Boolean> allowRequest = new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return breaker.allowRequest();
+                }
+            };
+            breaker.recordFailure(new ConnectException());
+            Assert.assertTrue(breaker.isOpen());
+            Thread.sleep(300);
+
+            // only one request tries the repository again
+            Assert.assertTrue(breaker.allowRequest());
+            Assert.assertTrue(breaker.allowRequest());
+            Assert.assertFalse(executor.submit(allowRequest).get(10, TimeUnit.SECONDS));
+
+            // a repository answering, even with an error, is reachable
+            breaker.recordFailure(new FileNotFoundException());
+            Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            Assert.assertTrue(executor.submit(allowRequest).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+            CircuitBreaker.setDefaults(threshold, coolDown);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.CmrRepository;
+import com.redhat.ceylon.cmr.api.ModuleQuery.Type;
+import com.redhat.ceylon.cmr.api.ModuleSearchResult;
+import com.redhat.ceylon.cmr.api.ModuleSearchResult.ModuleDetails;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.AbstractNodeRepositoryManager;
+import com.redhat.ceylon.cmr.impl.DefaultRepository;
+import com.redhat.ceylon.cmr.impl.FileContentStore;
+import com.redhat.ceylon.model.cmr.ArtifactResult;
+import com.redhat.ceylon.test.smoke.support.LocalHttpServer;
+
+/**
+ * Lookups and paged searches querying the repositories concurrently.
+ */
+public class ConcurrentLookupTestCase extends AbstractTest {
+
+    @Test
+    public void testConcurrentLookup() throws Exception {
+        RepositoryManagerBuilder builder = getRepositoryManagerBuilder(false, 60000, java.net.Proxy.NO_PROXY);
+        CmrRepository second = new DefaultRepository(new FileContentStore(getRepositoryRoot()).createRoot());
+        builder.addRepository(second);
+        builder.lookupThreads(4);
+        RepositoryManager manager = builder.buildRepository();
+
+        ArtifactResult result = manager.getArtifactResult(new ArtifactContext("org.jboss.acme", "1.0.0.Final"));
+        Assert.assertNotNull("Module 'org.jboss.acme-1.0.0.Final' not found", result);
+        // both repositories have it, the first one must win
+        Assert.assertSame(manager.getRepositories().get(0), result.repository());
+
+        Assert.assertNull(manager.getArtifactResult(new ArtifactContext("org.jboss.acme.missing", "1.0.0.Final")));
+    }
+
+    @Test
+    public void testConcurrentLookupSkipsLowerPriorityBodies() throws Exception {
+        final String path = "/org/acme/remote/1.0/org.acme.remote-1.0.car";
+        List<String> firstRequests = Collections.synchronizedList(new ArrayList<String>());
+        List<String> secondRequests = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer first = LocalHttpServer.serveFiles(Collections.singletonMap(path, "first".getBytes("ASCII")), firstRequests);
+        HttpServer second = LocalHttpServer.serveFiles(Collections.singletonMap(path, "second".getBytes("ASCII")), secondRequests);
+        try {
+            RepositoryManagerBuilder builder = getRepositoryManagerBuilder(false, 60000, java.net.Proxy.NO_PROXY);
+            builder.addRepository(LocalHttpServer.newRemoteRepository(first, log));
+            builder.addRepository(LocalHttpServer.newRemoteRepository(second, log));
+            builder.lookupThreads(4);
+            RepositoryManager manager = builder.buildRepository();
+
+            File file = manager.getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR));
+            Assert.assertNotNull(file);
+            Assert.assertEquals("first", new String(Files.readAllBytes(file.toPath()), "ASCII"));
+            Assert.assertTrue(firstRequests.toString(), firstRequests.contains("GET " + path));
+            // the lower priority repository was only asked whether it has it
+            Assert.assertFalse(secondRequests.toString(), secondRequests.contains("GET " + path));
+        } finally {
+            first.stop(0);
+            second.stop(0);
+        }
+    }
+
+    @Test
+    public void testSearchModulesPagedConcurrently() throws Exception {
+        RepositoryManagerBuilder builder = getRepositoryManagerBuilder(false, 60000, java.net.Proxy.NO_PROXY);
+        CmrRepository second = new DefaultRepository(new FileContentStore(getRepositoryRoot()).createRoot());
+        builder.addRepository(second);
+        builder.lookupThreads(4);
+        RepositoryManager repoManager = builder.buildRepository();
+
+        // both repositories have every module, each one must only be listed once
+        ModuleDetails[] expected = new ModuleDetails[]{
+                SmokeTestCase.com_acme_helloworld,
+                SmokeTestCase.hello,
+        };
+        ModuleSearchResult results = testSearchResults("", Type.JVM, expected, 0l, 2l, repoManager);
+        Assert.assertEquals(true, results.getHasMoreResults());
+        long[] pagingInfo = results.getNextPagingInfo();
+        Assert.assertEquals(2, pagingInfo[repoManager.getRepositories().indexOf(second)]);
+
+        expected = new ModuleDetails[]{
+                SmokeTestCase.moduletest,
+                SmokeTestCase.old_jar,
+                SmokeTestCase.older_jar,
+        };
+        results = testSearchResults("", Type.JVM, expected, results.getStart() + results.getCount(), 3l, repoManager, pagingInfo);
+        Assert.assertEquals(true, results.getHasMoreResults());
+        Assert.assertEquals(2, results.getStart());
+    }
+
+    @Test
+    public void testLookupThreadsShared() throws Exception {
+        AbstractNodeRepositoryManager first = (AbstractNodeRepositoryManager) getRepositoryManagerBuilder(false, 60000, null).lookupThreads(2).buildRepository();
+        AbstractNodeRepositoryManager second = (AbstractNodeRepositoryManager) getRepositoryManagerBuilder(false, 60000, null).lookupThreads(4).buildRepository();
+        // managers don't each get a pool of their own, that nobody would ever shut down
+        Assert.assertNotNull(first.getLookupExecutor());
+        Assert.assertSame(first.getLookupExecutor(), second.getLookupExecutor());
+        Assert.assertNull(((AbstractNodeRepositoryManager) getRepositoryManagerBuilder(false, 60000, null).lookupThreads(1).buildRepository()).getLookupExecutor());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.impl.FileContentStore;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.spi.ContentOptions;
+import com.redhat.ceylon.cmr.spi.OpenNode;
+
+/**
+ * The content-addressed blobs of the file content stores.
+ */
+public class ContentAddressedStoreTestCase extends AbstractTest {
+
+    @Test
+    public void testPutContentAddressed() throws Exception {
+        RepositoryManager manager = getRepositoryManagerBuilder(false, 60000, null).contentAddressed(true).buildRepository();
+
+        String name = "com.redhat.foobar1";
+        try {
+            manager.putArtifact(name, "1.0.0.Alpha3", new ByteArrayInputStream("qwerty".getBytes()));
+            manager.putArtifact(name, "1.0.0.Alpha4", new ByteArrayInputStream("qwerty".getBytes()));
+
+            File first = manager.getArtifact(name, "1.0.0.Alpha3");
+            File second = manager.getArtifact(name, "1.0.0.Alpha4");
+            Assert.assertNotNull("Failed to put or retrieve after put", first);
+            Assert.assertNotNull("Failed to put or retrieve after put", second);
+            Assert.assertArrayEquals("qwerty".getBytes(), Files.readAllBytes(second.toPath()));
+            if (Files.getFileStore(first.toPath()).supportsFileAttributeView("unix")) {
+                // both are links to the same blob
+                Assert.assertTrue(Files.isSameFile(first.toPath(), second.toPath()));
+            }
+        } finally {
+            manager.removeArtifact(name, "1.0.0.Alpha3");
+            manager.removeArtifact(name, "1.0.0.Alpha4");
+            IOUtils.deleteRecursively(new File(getRepositoryRoot(), ".blobs"));
+        }
+    }
+
+    @Test
+    public void testContentAddressedCopiesLocalFiles() throws Exception {
+        File sourceRoot = Files.createTempDirectory("cmr-source").toFile();
+        File targetRoot = Files.createTempDirectory("cmr-target").toFile();
+        try {
+            FileContentStore source = new FileContentStore(sourceRoot);
+            OpenNode sourceNode = source.createRoot().addNode("org.acme-1.0.car");
+            source.putContent(sourceNode, new ByteArrayInputStream("qwerty".getBytes()), ContentOptions.DEFAULT);
+            File sourceFile = new File(sourceRoot, "org.acme-1.0.car");
+
+            FileContentStore target = new FileContentStore(targetRoot);
+            target.setHardLinks(true);
+            target.setContentAddressed(true);
+            OpenNode targetNode = target.createRoot().addNode("org.acme-1.0.car");
+            target.putContent(targetNode, source.getContent(sourceNode).getBinariesAsStream(), ContentOptions.DEFAULT);
+            File targetFile = new File(targetRoot, "org.acme-1.0.car");
+
+            Assert.assertFalse(Files.isSameFile(sourceFile.toPath(), targetFile.toPath()));
+            // changing the source in place changes neither the artifact nor its blob
+            Files.write(sourceFile.toPath(), "azerty".getBytes());
+            Assert.assertArrayEquals("qwerty".getBytes(), Files.readAllBytes(targetFile.toPath()));
+        } finally {
+            IOUtils.deleteRecursively(sourceRoot);
+            IOUtils.deleteRecursively(targetRoot);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import com.redhat.ceylon.cmr.api.ArtifactCallback;
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.CmrRepository;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.impl.RootRepositoryManager;
+import com.redhat.ceylon.cmr.spi.Node;
+import com.redhat.ceylon.common.log.Logger;
+import com.redhat.ceylon.model.cmr.ArtifactResult;
+import com.redhat.ceylon.model.cmr.RepositoryException;
+import com.redhat.ceylon.test.smoke.support.LocalHttpServer;
+
+/**
+ * Downloads of remote artifacts into the cache.
+ */
+public class DownloadTestCase extends AbstractTest {
+
+    @Test
+    public void testOriginRepositoryFirst() throws Exception {
+        final String car = "/org/acme/remote/1.0/org.acme.remote-1.0.car";
+        final String src = "/org/acme/remote/1.0/org.acme.remote-1.0.src";
+        List<String> firstRequests = Collections.synchronizedList(new ArrayList<String>());
+        List<String> secondRequests = Collections.synchronizedList(new ArrayList<String>());
+        Map<String, byte[]> secondFiles = new HashMap<>();
+        secondFiles.put(car, "car".getBytes("ASCII"));
+        secondFiles.put(src, "src".getBytes("ASCII"));
+        HttpServer first = LocalHttpServer.serveFiles(Collections.singletonMap(src, "other src".getBytes("ASCII")), firstRequests);
+        HttpServer second = LocalHttpServer.serveFiles(secondFiles, secondRequests);
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            RepositoryManager manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(first, log))
+                    .addRepository(LocalHttpServer.newRemoteRepository(second, log))
+                    .buildRepository();
+            Assert.assertNotNull(manager.getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR)));
+
+            // the sources come from where the module came from
+            firstRequests.clear();
+            File file = manager.getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.SRC));
+            Assert.assertNotNull(file);
+            Assert.assertEquals("src", new String(Files.readAllBytes(file.toPath()), "ASCII"));
+            Assert.assertFalse(firstRequests.toString(), LocalHttpServer.containsPath(firstRequests, src));
+        } finally {
+            first.stop(0);
+            second.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    @Test
+    public void testBadSha1NeverVisible() throws Exception {
+        final String path = "/org/acme/remote/1.0/org.acme.remote-1.0.car";
+        Map<String, byte[]> files = new HashMap<>();
+        files.put(path, "tampered".getBytes("ASCII"));
+        files.put(path + ".sha1", "0123456789012345678901234567890123456789".getBytes("ASCII"));
+        HttpServer server = LocalHttpServer.serveFiles(files, Collections.synchronizedList(new ArrayList<String>()));
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            RepositoryManager manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(server, log))
+                    .buildRepository();
+            try {
+                Assert.assertNull(manager.getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR)));
+            } catch (RepositoryException expected) {
+            }
+            File dir = new File(cacheDir, "org/acme/remote/1.0");
+            Assert.assertFalse(new File(dir, "org.acme.remote-1.0.car").exists());
+            // nor staged next to it
+            String[] left = dir.list();
+            if (left != null) {
+                for (String name : left) {
+                    Assert.assertFalse(name, name.contains("org.acme.remote-1.0.car") && name.endsWith(".tmp"));
+                }
+            }
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    @Test
+    public void testRemoteArtifactSingleRequest() throws Exception {
+        final String path = "/org/acme/remote/1.0/org.acme.remote-1.0.car";
+        List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer server = LocalHttpServer.serveFiles(Collections.singletonMap(path, "remote".getBytes("ASCII")), requests);
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            RepositoryManager manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(server, log))
+                    .buildRepository();
+            File file = manager.getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR));
+            Assert.assertNotNull(file);
+            Assert.assertEquals("remote", new String(Files.readAllBytes(file.toPath()), "ASCII"));
+            // finding the artifact and downloading it is the same request
+            Assert.assertEquals(requests.toString(), Collections.singletonList("GET " + path), LocalHttpServer.filterPath(requests, path));
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    @Test
+    public void testConcurrentDownloadSingleRequest() throws Exception {
+        final String path = "/org/acme/remote/1.0/org.acme.remote-1.0.car";
+        final byte[] content = "remote".getBytes("ASCII");
+        final AtomicInteger gets = new AtomicInteger();
+        final CountDownLatch leading = new CountDownLatch(1);
+        final CountDownLatch waiting = new CountDownLatch(1);
+        HttpServer server = LocalHttpServer.start(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (path.equals(exchange.getRequestURI().getPath()) == false) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    gets.incrementAndGet();
+                    exchange.sendResponseHeaders(200, content.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        // hold the body back until the second lookup waits for this download
+                        waiting.await(10, TimeUnit.SECONDS);
+                        os.write(content);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                exchange.close();
+            }
+        }, Executors.newCachedThreadPool());
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final ExposedRootRepositoryManager manager = new ExposedRootRepositoryManager(cacheDir, log);
+            CmrRepository repository = LocalHttpServer.newRemoteRepository(server, log);
+            manager.add(repository);
+            final Node node = manager.find(repository, new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR));
+            Assert.assertNotNull(node);
+
+            final LatchCallback leaderCallback = new LatchCallback(leading);
+            Future<ArtifactResult> leader = executor.submit(new Callable<ArtifactResult>() {
+                public ArtifactResult call() throws Exception {
+                    ArtifactContext context = new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR);
+                    context.setCallback(leaderCallback);
+                    return manager.get(context, node);
+                }
+            });
+            Assert.assertTrue(leading.await(10, TimeUnit.SECONDS));
+            final LatchCallback waiterCallback = new LatchCallback(waiting);
+            Future<ArtifactResult> waiter = executor.submit(new Callable<ArtifactResult>() {
+                public ArtifactResult call() throws Exception {
+                    ArtifactContext context = new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR);
+                    context.setCallback(waiterCallback);
+                    return manager.get(context, node);
+                }
+            });
+
+            File first = leader.get(10, TimeUnit.SECONDS).artifact();
+            File second = waiter.get(10, TimeUnit.SECONDS).artifact();
+            Assert.assertEquals(first, second);
+            Assert.assertArrayEquals(content, Files.readAllBytes(first.toPath()));
+            Assert.assertEquals(1, gets.get());
+            // the waiter hears about the download as well
+            Assert.assertEquals(first, leaderCallback.done);
+            Assert.assertEquals(first, waiterCallback.done);
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    private static class ExposedRootRepositoryManager extends RootRepositoryManager {
+        ExposedRootRepositoryManager(File root, Logger log) {
+            super(root, log, RepositoryManagerBuilder.parseOverrides(null));
+        }
+
+        void add(CmrRepository repository) {
+            addRepository(repository);
+        }
+
+        Node find(CmrRepository repository, ArtifactContext context) {
+            return fromRepository(repository, context, true);
+        }
+
+        ArtifactResult get(ArtifactContext context, Node node) {
+            return getArtifactResult(context, node);
+        }
+    }
+
+    private static class LatchCallback implements ArtifactCallback {
+        private final CountDownLatch started;
+        private volatile File done;
+
+        LatchCallback(CountDownLatch started) {
+            this.started = started;
+        }
+
+        public void start(String nodeFullPath, long size, String contentStore) {
+            started.countDown();
+        }
+
+        public void read(byte[] bytes, int length) {
+        }
+
+        public void done(File localFile) {
+            done = localFile;
+        }
+
+        public void error(File localFile, Throwable err) {
+        }
+    }
+}
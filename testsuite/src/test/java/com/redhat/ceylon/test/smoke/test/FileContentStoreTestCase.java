@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.impl.FileContentStore;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.spi.ContentOptions;
+import com.redhat.ceylon.cmr.spi.OpenNode;
+
+/**
+ * Publishing artifacts into the file content stores.
+ */
+public class FileContentStoreTestCase extends AbstractTest {
+
+    @Test
+    public void testPutLocalFile() throws Exception {
+        RepositoryManager manager = getRepositoryManagerBuilder(false, 60000, null).hardLinks(true).buildRepository();
+
+        File source = File.createTempFile("cmr-local", ".car");
+        String name = "com.redhat.foobar1";
+        String version = "1.0.0.Alpha2";
+        try {
+            Files.write(source.toPath(), "qwerty".getBytes());
+            manager.putArtifact(name, version, source);
+
+            File file = manager.getArtifact(name, version);
+            Assert.assertNotNull("Failed to put or retrieve after put", file);
+            Assert.assertArrayEquals("qwerty".getBytes(), Files.readAllBytes(file.toPath()));
+        } finally {
+            manager.removeArtifact(name, version);
+            source.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentPutsDownloadInParallel() throws Exception {
+        File root = Files.createTempDirectory("cmr-store").toFile();
+        final int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final FileContentStore store = new FileContentStore(root);
+            final OpenNode node = store.createRoot().addNode("org.acme-1.0.car");
+            final CountDownLatch downloading = new CountDownLatch(threads);
+            List<Future<?>> puts = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final byte[] content = ("content of put " + i).getBytes("ASCII");
+                puts.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        InputStream stream = new ByteArrayInputStream(content) {
+                            private boolean started;
+
+                            @Override
+                            public synchronized int read(byte[] b, int off, int len) {
+                                if (started == false) {
+                                    started = true;
+                                    downloading.countDown();
+                                    try {
+                                        // only possible if nobody holds a lock while downloading
+                                        Assert.assertTrue(downloading.await(10, TimeUnit.SECONDS));
+                                    } catch (InterruptedException e) {
+                                        throw new IllegalStateException(e);
+                                    }
+                                }
+                                return super.read(b, off, len);
+                            }
+                        };
+                        store.putContent(node, stream, ContentOptions.DEFAULT);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> put : puts) {
+                put.get(20, TimeUnit.SECONDS);
+            }
+            File file = new File(root, "org.acme-1.0.car");
+            String content = new String(Files.readAllBytes(file.toPath()), "ASCII");
+            Assert.assertTrue(content, content.matches("content of put [0-3]"));
+            for (String name : root.list()) {
+                Assert.assertFalse(name, name.endsWith(".tmp"));
+            }
+        } finally {
+            executor.shutdownNow();
+            IOUtils.deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testLockFilesOnlyInSharedStores() throws Exception {
+        File root = Files.createTempDirectory("cmr-store").toFile();
+        try {
+            FileContentStore store = new FileContentStore(root);
+            store.putContent(store.createRoot().addNode("org.acme-1.0.car"), new ByteArrayInputStream("private".getBytes("ASCII")), ContentOptions.DEFAULT);
+            Assert.assertTrue(new File(root, "org.acme-1.0.car").exists());
+            Assert.assertFalse(new File(root, ".org.acme-1.0.car.lock").exists());
+
+            // other processes publish to shared stores as well, and must be locked out
+            store.setShared(true);
+            store.putContent(store.createRoot().addNode("org.acme-2.0.car"), new ByteArrayInputStream("shared".getBytes("ASCII")), ContentOptions.DEFAULT);
+            Assert.assertTrue(new File(root, "org.acme-2.0.car").exists());
+            Assert.assertTrue(new File(root, ".org.acme-2.0.car.lock").exists());
+        } finally {
+            IOUtils.deleteRecursively(root);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.HerdResponseCache;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.impl.URLContentStore;
+import com.redhat.ceylon.test.smoke.support.LocalHttpServer;
+
+/**
+ * The on-disk cache of the Herd responses.
+ */
+public class HerdResponseCacheTestCase extends AbstractTest {
+
+    @Test
+    public void testHerdResponseCache() throws Exception {
+        HttpServer server = LocalHttpServer.start(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                if (path.equals("/nostore"))
+                    exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                else if (path.equals("/revalidate")) {
+                    exchange.getResponseHeaders().set("Cache-Control", "max-age=0");
+                    exchange.getResponseHeaders().set("ETag", "\"1\"");
+                }
+                byte[] content = "<results total=\"0\"/>".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, content.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(content);
+                }
+            }
+        });
+        File dir = Files.createTempDirectory("cmr-herd").toFile();
+        try {
+            String base = LocalHttpServer.getURL(server);
+            HerdResponseCache cache = new HerdResponseCache(60000, 1024, dir);
+            for (String path : new String[]{"/fresh", "/nostore", "/revalidate"}) {
+                HttpURLConnection con = (HttpURLConnection) new URL(base + path).openConnection();
+                Assert.assertEquals(200, con.getResponseCode());
+                byte[] content;
+                try (InputStream is = con.getInputStream()) {
+                    content = new byte[con.getContentLength()];
+                    Assert.assertEquals(content.length, is.read(content));
+                }
+                cache.put(path, content, con);
+                con.disconnect();
+            }
+            long now = System.currentTimeMillis();
+            Assert.assertEquals(2, cache.getCount());
+            Assert.assertTrue(cache.get("/fresh").isFresh(now));
+            Assert.assertNull(cache.get("/nostore"));
+            HerdResponseCache.Response revalidate = cache.get("/revalidate");
+            Assert.assertFalse(revalidate.isFresh(now));
+            Assert.assertTrue(revalidate.canRevalidate());
+
+            // warm start
+            HerdResponseCache restarted = new HerdResponseCache(60000, 1024, dir);
+            Assert.assertEquals(2, restarted.getCount());
+            Assert.assertArrayEquals(cache.get("/fresh").getContent(), restarted.get("/fresh").getContent());
+
+            // the budget only leaves room for one response
+            HerdResponseCache small = new HerdResponseCache(60000, 30, dir);
+            Assert.assertEquals(1, small.getCount());
+            Assert.assertTrue(small.getBytes() <= 30);
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testHerdResponseCacheSharedByManagers() throws Exception {
+        HerdResponseCache previous = URLContentStore.getResponseCache();
+        File firstDir = Files.createTempDirectory("cmr-cache").toFile();
+        File secondDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            URLContentStore.setResponseCache(null);
+            new RepositoryManagerBuilder(firstDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .herdResponseCache(60000, 1024, true)
+                    .buildRepository();
+            HerdResponseCache cache = URLContentStore.getResponseCache();
+            Assert.assertNotNull(cache);
+            Assert.assertEquals(new File(firstDir, HerdResponseCache.CACHE_DIR), cache.getDir());
+
+            // later managers share it, whatever they ask for
+            new RepositoryManagerBuilder(secondDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .herdResponseCache(1000, 2048, true)
+                    .buildRepository();
+            new RepositoryManagerBuilder(secondDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .herdResponseCache(0, 0, false)
+                    .buildRepository();
+            Assert.assertSame(cache, URLContentStore.getResponseCache());
+        } finally {
+            URLContentStore.setResponseCache(previous);
+            IOUtils.deleteRecursively(firstDir);
+            IOUtils.deleteRecursively(secondDir);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.impl.FileContentStore;
+import com.redhat.ceylon.cmr.impl.HotContentCache;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.spi.OpenNode;
+
+/**
+ * The in-memory cache of small, frequently read artifacts.
+ */
+public class HotContentCacheTestCase extends AbstractTest {
+
+    @Test
+    public void testHotContentCache() throws Exception {
+        File dir = Files.createTempDirectory("cmr-hot").toFile();
+        try {
+            File first = new File(dir, "module.properties");
+            File second = new File(dir, "module.xml");
+            Files.write(first.toPath(), new byte[40]);
+            Files.write(second.toPath(), new byte[40]);
+
+            FileContentStore store = new FileContentStore(dir);
+            HotContentCache hot = new HotContentCache(64, 64);
+            store.setHotCache(hot);
+            OpenNode root = store.createRoot();
+            for (int i = 0; i < 2; i++) {
+                try (InputStream is = store.find(root, "module.properties").getInputStream()) {
+                    Assert.assertEquals(0, is.read());
+                }
+            }
+            Assert.assertEquals(1, hot.getMisses());
+            Assert.assertEquals(1, hot.getHits());
+
+            // over budget, the least recently used goes
+            try (InputStream is = store.find(root, "module.xml").getInputStream()) {
+                Assert.assertEquals(0, is.read());
+            }
+            Assert.assertEquals(1, hot.getEvictions());
+            Assert.assertEquals(40, hot.getBytes());
+
+            // changed on disk, read again
+            Files.write(second.toPath(), new byte[10]);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (InputStream is = store.find(root, "module.xml").getInputStream()) {
+                IOUtils.copyStream(is, baos, false, false);
+            }
+            Assert.assertEquals(10, baos.size());
+            Assert.assertEquals(3, hot.getMisses());
+        } finally {
+            IOUtils.deleteRecursively(dir);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.impl.RemoteContentStore;
+import com.redhat.ceylon.cmr.spi.OpenNode;
+import com.redhat.ceylon.cmr.util.HttpClient;
+import com.redhat.ceylon.test.smoke.support.LocalHttpServer;
+
+/**
+ * The shared HTTP client of the remote content stores.
+ */
+public class HttpClientTestCase extends AbstractTest {
+
+    @Test
+    public void testRemoteFetchSingleRequest() throws Exception {
+        final byte[] content = "remote content".getBytes("ASCII");
+        final AtomicInteger requests = new AtomicInteger();
+        final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+        HttpServer server = LocalHttpServer.start(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if ("/org.acme-1.0.car".equals(exchange.getRequestURI().getPath()) == false) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                requests.incrementAndGet();
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                exchange.sendResponseHeaders(200, content.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(content);
+                }
+            }
+        });
+        try {
+            RemoteContentStore store = new RemoteContentStore(LocalHttpServer.getURL(server), log, false, 60000, java.net.Proxy.NO_PROXY);
+            OpenNode root = store.createRoot();
+            for (int i = 1; i <= 2; i++) {
+                OpenNode node = store.find(root, "org.acme-1.0.car");
+                Assert.assertNotNull(node);
+                Assert.assertEquals(content.length, node.getSize());
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                try (InputStream is = node.getInputStream()) {
+                    IOUtils.copyStream(is, baos, false, false);
+                }
+                Assert.assertArrayEquals(content, baos.toByteArray());
+                // existence, size and content all came from a single GET
+                Assert.assertEquals(i, requests.get());
+            }
+            // and the connection was kept alive
+            Assert.assertEquals(1, clientPorts.size());
+            Assert.assertNull(store.find(root, "org.acme-2.0.car"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testHttpClientConnectionLimit() throws Exception {
+        final HttpClient client = new HttpClient(java.net.Proxy.NO_PROXY, 200);
+        final URL url = new URL("http://localhost:1/limit");
+        Callable<HttpURLConnection> open = new Callable<HttpURLConnection>() {
+            public HttpURLConnection call() throws Exception {
+                return client.open(url);
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        HttpClient.setMaxConnectionsPerHost(1);
+        try {
+            HttpURLConnection held = client.open(url);
+            // a thread doesn't wait for itself
+            HttpClient.detach(client.open(url));
+            // another one waits for the connect timeout, then goes ahead unthrottled
+            long start = System.nanoTime();
+            HttpURLConnection unthrottled = executor.submit(open).get(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(unthrottled);
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+            HttpClient.detach(unthrottled);
+            HttpClient.detach(held);
+            HttpClient.detach(executor.submit(open).get(10, TimeUnit.SECONDS));
+        } finally {
+            HttpClient.setMaxConnectionsPerHost(HttpClient.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+            executor.shutdown();
+        }
+    }
+}
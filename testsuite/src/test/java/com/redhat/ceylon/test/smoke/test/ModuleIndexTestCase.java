@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.api.ModuleDependencyInfo;
+import com.redhat.ceylon.cmr.api.ModuleQuery;
+import com.redhat.ceylon.cmr.api.ModuleQuery.Type;
+import com.redhat.ceylon.cmr.api.ModuleVersionDetails;
+import com.redhat.ceylon.cmr.api.Overrides;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.impl.ModuleIndex;
+import com.redhat.ceylon.cmr.impl.ModuleInfoReader;
+
+/**
+ * The module index of the file content stores.
+ */
+public class ModuleIndexTestCase extends AbstractTest {
+
+    @Test
+    public void testModuleIndex() throws Exception {
+        File root = Files.createTempDirectory("cmr-index").toFile();
+        try {
+            final File car = new File(root, "org/acme/1.0/org.acme-1.0.car");
+            car.getParentFile().mkdirs();
+            Files.write(car.toPath(), new byte[100]);
+            final AtomicInteger reads = new AtomicInteger();
+            ModuleInfoReader reader = new ModuleInfoReader() {
+                public boolean matchesModuleInfo(String moduleName, String version, File moduleArchive, String query, Overrides overrides) {
+                    throw new AssertionError("Should be answered by the index");
+                }
+
+                public ModuleVersionDetails readModuleInfo(String moduleName, String version, File moduleArchive, boolean includeMembers, Overrides overrides) {
+                    reads.incrementAndGet();
+                    ModuleVersionDetails mvd = new ModuleVersionDetails(moduleName, version, "The\tdoc,\nof: acme", "ASL", "Ales", "Stef");
+                    mvd.getDependencies().add(new ModuleDependencyInfo("ceylon.collection", "1.1.0", false, true));
+                    if (includeMembers)
+                        mvd.getMembers().addAll(Arrays.asList("org.acme::HashMap", "org.acme.impl::HashMapImpl", "org.acme::List"));
+                    return mvd;
+                }
+
+                public int[] getBinaryVersions(String moduleName, String version, File moduleArchive) {
+                    reads.incrementAndGet();
+                    return new int[]{8, 0};
+                }
+            };
+
+            ModuleInfoReader indexed = new ModuleIndex(root).wrap(reader);
+            indexed.readModuleInfo("org.acme", "1.0", car, false, null);
+            indexed.getBinaryVersions("org.acme", "1.0", car);
+            Assert.assertEquals(2, reads.get());
+
+            // another process gets it from disk
+            indexed = new ModuleIndex(root).wrap(reader);
+            ModuleVersionDetails mvd = indexed.readModuleInfo("org.acme", "1.0", car, false, null);
+            Assert.assertEquals("The\tdoc,\nof: acme", mvd.getDoc());
+            Assert.assertEquals(2, mvd.getAuthors().size());
+            Assert.assertEquals("ceylon.collection", mvd.getDependencies().first().getName());
+            Assert.assertTrue(mvd.getDependencies().first().isExport());
+            Assert.assertArrayEquals(new int[]{8, 0}, indexed.getBinaryVersions("org.acme", "1.0", car));
+            Assert.assertTrue(indexed.matchesModuleInfo("org.acme", "1.0", car, "collection", null));
+            Assert.assertEquals(2, reads.get());
+
+            // members are read once, then looked up
+            ModuleQuery query = new ModuleQuery("", Type.JVM);
+            query.setMemberName("hashmap");
+            ModuleIndex.IndexedReader members = new ModuleIndex(root).wrap(reader);
+            Assert.assertEquals(2, members.findMembers("org.acme", "1.0", car, query).size());
+            Assert.assertEquals(3, reads.get());
+            query.setMemberName("org.acme::HashMap");
+            query.setMemberSearchExact(true);
+            Assert.assertEquals(Collections.singleton("org.acme::HashMap"), members.findMembers("org.acme", "1.0", car, query));
+            query.setMemberName("org.acme.impl");
+            query.setMemberSearchPackageOnly(true);
+            Assert.assertEquals(Collections.singleton("org.acme.impl"), members.findMembers("org.acme", "1.0", car, query));
+            Assert.assertEquals(3, reads.get());
+
+            // changed archive, read again
+            car.setLastModified(car.lastModified() - 10000);
+            indexed.getBinaryVersions("org.acme", "1.0", car);
+            Assert.assertEquals(4, reads.get());
+        } finally {
+            IOUtils.deleteRecursively(root);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.api.ModuleQuery;
+import com.redhat.ceylon.cmr.api.ModuleQuery.Type;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.DefaultRepository;
+import com.redhat.ceylon.cmr.impl.FileContentStore;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.impl.ModuleNames;
+
+/**
+ * The module names collected from the repositories.
+ */
+public class ModuleNamesTestCase extends AbstractTest {
+
+    @Test
+    public void testModuleNames() throws Exception {
+        ModuleNames names = new ModuleNames(Arrays.asList("org.jboss.acme", "com.acme.helloworld", "org.jboss"));
+        Assert.assertEquals(Arrays.asList("org.jboss", "org.jboss.acme"), names.startingWith("org."));
+        Assert.assertEquals(3, names.startingWith("").size());
+        Assert.assertTrue(names.startingWith("org.jboss.acme.").isEmpty());
+
+        Assert.assertTrue(names.add("org.acme"));
+        Assert.assertFalse(names.add("org.acme"));
+        Assert.assertEquals(Arrays.asList("org.acme", "org.jboss", "org.jboss.acme"), names.startingWith("org"));
+        Assert.assertTrue(names.remove("org.jboss"));
+        Assert.assertFalse(names.contains("org.jboss"));
+        Assert.assertEquals(Arrays.asList("org.jboss.acme"), names.startingWith("org.j"));
+    }
+
+    @Test
+    public void testModuleNamesSeeOtherWriters() throws Exception {
+        File repoDir = Files.createTempDirectory("cmr-repo").toFile();
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            copyModule("test-jar", "0.1", repoDir);
+            DefaultRepository repo = new DefaultRepository(new FileContentStore(repoDir).createRoot());
+            repo.setModuleNamesTtl(100);
+            RepositoryManager manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(repo)
+                    .buildRepository();
+            ModuleQuery query = new ModuleQuery("", Type.JVM);
+            Assert.assertTrue(manager.completeModules(query).getModuleNames().contains("test-jar"));
+
+            // published by somebody else
+            copyModule("old-jar", "1.2.CR1", repoDir);
+            Thread.sleep(200);
+            Assert.assertTrue(manager.completeModules(query).getModuleNames().containsAll(Arrays.asList("old-jar", "test-jar")));
+        } finally {
+            IOUtils.deleteRecursively(repoDir);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    private void copyModule(String name, String version, File repoDir) throws Exception {
+        File source = new File(new File(getRepositoryRoot(), name), version);
+        File target = new File(new File(repoDir, name), version);
+        Assert.assertTrue(target.mkdirs());
+        for (File file : source.listFiles()) {
+            Files.copy(file.toPath(), new File(target, file.getName()).toPath());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.test.smoke.support.LocalHttpServer;
+
+/**
+ * The .missing markers of the cache, and their time to live.
+ */
+public class NegativeCacheTestCase extends AbstractTest {
+
+    @Test
+    public void testMissingArtifactTtl() throws Exception {
+        final String path = "/org/acme/missing/1.0/org.acme.missing-1.0.car";
+        List<String> firstRequests = Collections.synchronizedList(new ArrayList<String>());
+        List<String> secondRequests = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer first = LocalHttpServer.serveFiles(Collections.<String, byte[]>emptyMap(), firstRequests);
+        HttpServer second = LocalHttpServer.serveFiles(Collections.<String, byte[]>emptyMap(), secondRequests);
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            ArtifactContext context = new ArtifactContext("org.acme.missing", "1.0", ArtifactContext.CAR);
+            RepositoryManager manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(first, log))
+                    .missingArtifactTtl(60000)
+                    .buildRepository();
+            Assert.assertNull(manager.getArtifact(context));
+            Assert.assertTrue(firstRequests.toString(), LocalHttpServer.containsPath(firstRequests, path));
+
+            // a new process trusts the marker
+            firstRequests.clear();
+            manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(first, log))
+                    .missingArtifactTtl(60000)
+                    .buildRepository();
+            Assert.assertNull(manager.getArtifact(context));
+            Assert.assertFalse(firstRequests.toString(), LocalHttpServer.containsPath(firstRequests, path));
+
+            // unless it has other repositories to ask
+            manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(first, log))
+                    .addRepository(LocalHttpServer.newRemoteRepository(second, log))
+                    .missingArtifactTtl(60000)
+                    .buildRepository();
+            Assert.assertNull(manager.getArtifact(context));
+            Assert.assertTrue(secondRequests.toString(), LocalHttpServer.containsPath(secondRequests, path));
+        } finally {
+            first.stop(0);
+            second.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    @Test
+    public void testMissingMarkerForEveryArtifact() throws Exception {
+        final String car = "/org/acme/missing/1.0/org.acme.missing-1.0.car";
+        final String jar = "/org/acme/missing/1.0/org.acme.missing-1.0.jar";
+        List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer server = LocalHttpServer.serveFiles(Collections.<String, byte[]>emptyMap(), requests);
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            ArtifactContext context = new ArtifactContext("org.acme.missing", "1.0", ArtifactContext.CAR, ArtifactContext.JAR);
+            RepositoryManager manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(LocalHttpServer.newRemoteRepository(server, log))
+                    .missingArtifactTtl(60000)
+                    .buildRepository();
+            Assert.assertNull(manager.getArtifact(context));
+            File dir = new File(cacheDir, "org/acme/missing/1.0");
+            Assert.assertTrue(new File(dir, "org.acme.missing-1.0.car.missing").exists());
+            Assert.assertTrue(new File(dir, "org.acme.missing-1.0.jar.missing").exists());
+
+            // so the lookup of both is known to fail
+            requests.clear();
+            Assert.assertNull(manager.getArtifact(context));
+            Assert.assertFalse(requests.toString(), LocalHttpServer.containsPath(requests, car));
+            Assert.assertFalse(requests.toString(), LocalHttpServer.containsPath(requests, jar));
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+}
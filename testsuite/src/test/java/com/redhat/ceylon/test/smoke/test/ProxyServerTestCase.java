@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.proxy.RepositoryProxyServer;
+
+/**
+ * The caching repository proxy server.
+ */
+public class ProxyServerTestCase extends AbstractTest {
+
+    @Test
+    public void testProxyServer() throws Exception {
+        RepositoryProxyServer proxy = new RepositoryProxyServer(getRepositoryManager(), log);
+        proxy.start(new InetSocketAddress("localhost", 0));
+        try {
+            String base = "http://localhost:" + proxy.getAddress().getPort();
+            File jar = new File(getRepositoryRoot(), "test-jar/0.1/test-jar-0.1.jar");
+
+            HttpURLConnection conn = (HttpURLConnection) new URL(base + "/test-jar/0.1/test-jar-0.1.jar").openConnection();
+            Assert.assertEquals(200, conn.getResponseCode());
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (InputStream is = conn.getInputStream()) {
+                IOUtils.copyStream(is, baos, false, false);
+            }
+            Assert.assertArrayEquals(Files.readAllBytes(jar.toPath()), baos.toByteArray());
+            String etag = conn.getHeaderField("ETag");
+            Assert.assertNotNull(etag);
+
+            // revalidation
+            conn = (HttpURLConnection) new URL(base + "/test-jar/0.1/test-jar-0.1.jar").openConnection();
+            conn.setRequestProperty("If-None-Match", etag);
+            Assert.assertEquals(304, conn.getResponseCode());
+
+            conn = (HttpURLConnection) new URL(base + "/test-jar/0.1/test-jar-0.1.jar.sha1").openConnection();
+            Assert.assertEquals(200, conn.getResponseCode());
+            conn.getInputStream().close();
+
+            conn = (HttpURLConnection) new URL(base + "/test-jar/0.2/test-jar-0.2.jar").openConnection();
+            Assert.assertEquals(404, conn.getResponseCode());
+        } finally {
+            proxy.stop(0);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import com.redhat.ceylon.cmr.api.ArtifactContext;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.impl.RemoteContentStore;
+import com.redhat.ceylon.test.smoke.support.LocalHttpServer;
+
+/**
+ * Resuming interrupted downloads with range requests.
+ */
+public class ResumeDownloadTestCase extends AbstractTest {
+
+    @Test
+    public void testResumeDownload() throws Exception {
+        byte[] content = "the whole content of the remote artifact".getBytes("ASCII");
+        List<String> ranges = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer server = serveRanges(content, "\"v1\"", ranges);
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            File partial = writePartial(cacheDir, Arrays.copyOf(content, 10), "\"v1\"");
+            File file = newRangeManager(cacheDir, server).getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR));
+            Assert.assertNotNull(file);
+            Assert.assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+            Assert.assertTrue(ranges.toString(), ranges.contains("bytes=10- 206"));
+            assertNoPartial(partial);
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    @Test
+    public void testResumeChangedDownload() throws Exception {
+        byte[] content = "the whole content of the remote artifact".getBytes("ASCII");
+        List<String> ranges = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer server = serveRanges(content, "\"v2\"", ranges);
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            File partial = writePartial(cacheDir, "an older content".getBytes("ASCII"), "\"v1\"");
+            File file = newRangeManager(cacheDir, server).getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR));
+            Assert.assertNotNull(file);
+            // nothing of the old content is kept
+            Assert.assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+            Assert.assertTrue(ranges.toString(), ranges.contains("bytes=16- 200"));
+            assertNoPartial(partial);
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    @Test
+    public void testResumeUnsatisfiableDownload() throws Exception {
+        byte[] content = "short".getBytes("ASCII");
+        List<String> ranges = Collections.synchronizedList(new ArrayList<String>());
+        HttpServer server = serveRanges(content, "\"v1\"", ranges);
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            File partial = writePartial(cacheDir, "longer than the content".getBytes("ASCII"), "\"v1\"");
+            File file = newRangeManager(cacheDir, server).getArtifact(new ArtifactContext("org.acme.remote", "1.0", ArtifactContext.CAR));
+            Assert.assertNotNull(file);
+            Assert.assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+            Assert.assertTrue(ranges.toString(), ranges.contains("bytes=23- 416"));
+            assertNoPartial(partial);
+        } finally {
+            server.stop(0);
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+
+    /**
+     * Serve a single artifact, honouring Range and If-Range, and record each GET
+     * as its Range header (or "-") and response code.
+     */
+    private static HttpServer serveRanges(final byte[] content, final String etag, final List<String> ranges) throws IOException {
+        final String path = "/org/acme/remote/1.0/org.acme.remote-1.0.car";
+        return LocalHttpServer.start(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (path.equals(exchange.getRequestURI().getPath()) == false) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().set("ETag", etag);
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                    return;
+                }
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                int start = 0;
+                int code = 200;
+                if (range != null && etag.equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+                    start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                    code = (start < content.length) ? 206 : 416;
+                }
+                ranges.add(((range != null) ? range : "-") + " " + code);
+                if (code == 416) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                    exchange.sendResponseHeaders(416, -1);
+                } else {
+                    if (code == 206)
+                        exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+                    exchange.sendResponseHeaders(code, content.length - start);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(content, start, content.length - start);
+                    }
+                }
+                exchange.close();
+            }
+        });
+    }
+
+    private RepositoryManager newRangeManager(File cacheDir, HttpServer server) {
+        return new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                .addRepository(LocalHttpServer.newRemoteRepository(server, log))
+                .buildRepository();
+    }
+
+    private static File writePartial(File cacheDir, byte[] bytes, String validator) throws IOException {
+        File dir = new File(cacheDir, "org/acme/remote/1.0");
+        dir.mkdirs();
+        File partial = new File(dir, ".org.acme.remote-1.0.car.part");
+        Files.write(partial.toPath(), bytes);
+        Files.write(RemoteContentStore.getValidatorFile(partial).toPath(), validator.getBytes("ASCII"));
+        return partial;
+    }
+
+    private static void assertNoPartial(File partial) {
+        Assert.assertFalse(partial.exists());
+        Assert.assertFalse(RemoteContentStore.getValidatorFile(partial).exists());
+        for (String name : partial.getParentFile().list()) {
+            Assert.assertFalse(name, name.endsWith(".tmp"));
+        }
+    }
+}
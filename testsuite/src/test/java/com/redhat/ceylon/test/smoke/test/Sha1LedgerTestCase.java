@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.impl.FileContentStore;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.impl.Sha1Ledger;
+import com.redhat.ceylon.cmr.spi.OpenNode;
+
+/**
+ * The SHA-1 ledger of the file content stores.
+ */
+public class Sha1LedgerTestCase extends AbstractTest {
+
+    @Test
+    public void testSha1Ledger() throws Exception {
+        File root = Files.createTempDirectory("cmr-ledger").toFile();
+        try {
+            File file = new File(root, "org/acme/1.0/org.acme-1.0.car");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), "qwerty".getBytes());
+            Sha1Ledger ledger = new Sha1Ledger(root);
+            ledger.record(file, "a", true);
+            Assert.assertEquals("a", ledger.getDigest(file));
+            Assert.assertEquals("a", new Sha1Ledger(root).getDigest(file));
+
+            // a touched file is hashed again
+            Assert.assertTrue(file.setLastModified(file.lastModified() - 10000));
+            Assert.assertNull(ledger.getDigest(file));
+            ledger.record(file, "b", true);
+            // and so is a file of another size
+            long lastModified = file.lastModified();
+            Files.write(file.toPath(), "qwertyuiop".getBytes());
+            Assert.assertTrue(file.setLastModified(lastModified));
+            Assert.assertNull(ledger.getDigest(file));
+            Assert.assertNull(new Sha1Ledger(root).getDigest(file));
+        } finally {
+            IOUtils.deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testSha1LedgerCompaction() throws Exception {
+        File root = Files.createTempDirectory("cmr-ledger").toFile();
+        try {
+            File file = new File(root, "org/acme/1.0/org.acme-1.0.car");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), "qwerty".getBytes());
+            Sha1Ledger ledger = new Sha1Ledger(root);
+            for (int i = 0; i < 200; i++) {
+                ledger.record(file, (i % 2 == 0) ? "a" : "b", true);
+            }
+            File ledgerFile = new File(root, Sha1Ledger.LEDGER_FILE);
+            Assert.assertEquals(200, Files.readAllLines(ledgerFile.toPath(), java.nio.charset.StandardCharsets.UTF_8).size());
+
+            // loading it keeps the last entry only
+            Assert.assertEquals("b", new Sha1Ledger(root).getDigest(file));
+            Assert.assertEquals(1, Files.readAllLines(ledgerFile.toPath(), java.nio.charset.StandardCharsets.UTF_8).size());
+            Assert.assertEquals("b", new Sha1Ledger(root).getDigest(file));
+        } finally {
+            IOUtils.deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testSha1LedgerCorruptLine() throws Exception {
+        File root = Files.createTempDirectory("cmr-ledger").toFile();
+        try {
+            File file = new File(root, "org/acme/1.0/org.acme-1.0.car");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), "qwerty".getBytes());
+            new Sha1Ledger(root).record(file, "a", true);
+            File ledgerFile = new File(root, Sha1Ledger.LEDGER_FILE);
+            // an interrupted write, and some garbage
+            Files.write(ledgerFile.toPath(), "b\ttrue\tsix\t0\torg/acme/1.0/org.acme-1.0.car\ngarbage\nc\ttr".getBytes("UTF-8"),
+                    java.nio.file.StandardOpenOption.APPEND);
+
+            Sha1Ledger ledger = new Sha1Ledger(root);
+            Assert.assertEquals("a", ledger.getDigest(file));
+            // and we can still append after the truncated line
+            ledger.record(file, "d", true);
+            Assert.assertEquals("d", new Sha1Ledger(root).getDigest(file));
+        } finally {
+            IOUtils.deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testSha1LedgerHidden() throws Exception {
+        File root = Files.createTempDirectory("cmr-ledger").toFile();
+        try {
+            File file = new File(root, "org/acme/1.0/org.acme-1.0.car");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), "qwerty".getBytes());
+            new Sha1Ledger(root).record(file, "a", true);
+            Assert.assertTrue(new File(root, Sha1Ledger.LEDGER_FILE).exists());
+
+            // it's no module
+            FileContentStore store = new FileContentStore(root);
+            for (OpenNode node : store.find(store.createRoot())) {
+                Assert.assertEquals("org", node.getLabel());
+            }
+        } finally {
+            IOUtils.deleteRecursively(root);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Red Hat inc. and third party contributors as noted
+ * by the author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.ceylon.test.smoke.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.redhat.ceylon.cmr.api.CmrRepository;
+import com.redhat.ceylon.cmr.api.ModuleQuery.Type;
+import com.redhat.ceylon.cmr.api.ModuleVersionDetails;
+import com.redhat.ceylon.cmr.api.ModuleVersionQuery;
+import com.redhat.ceylon.cmr.api.ModuleVersionResult;
+import com.redhat.ceylon.cmr.api.RepositoryManager;
+import com.redhat.ceylon.cmr.api.RepositoryManagerBuilder;
+import com.redhat.ceylon.cmr.impl.DefaultNode;
+import com.redhat.ceylon.cmr.impl.DefaultRepository;
+import com.redhat.ceylon.cmr.impl.IOUtils;
+import com.redhat.ceylon.cmr.spi.OpenNode;
+
+/**
+ * Completions answered with stale results while those are refreshed.
+ */
+public class StaleWhileRevalidateTestCase extends AbstractTest {
+
+    @Test
+    public void testStaleCompleteVersions() throws Exception {
+        final AtomicReference<String[]> versions = new AtomicReference<>(new String[]{"1.0"});
+        final AtomicInteger calls = new AtomicInteger();
+        @SuppressWarnings("serial")
+        OpenNode root = new DefaultNode("stale-remote") {
+            @Override
+            public boolean isRemote() {
+                return true;
+            }
+        };
+        CmrRepository remote = new DefaultRepository(root) {
+            @Override
+            public void completeVersions(ModuleVersionQuery lookup, ModuleVersionResult result) {
+                calls.incrementAndGet();
+                for (String version : versions.get()) {
+                    ModuleVersionDetails details = result.addVersion(lookup.getName(), version);
+                    if (details != null) {
+                        details.setRemote(true);
+                        details.setOrigin(getDisplayString());
+                    }
+                }
+            }
+        };
+        File cacheDir = Files.createTempDirectory("cmr-cache").toFile();
+        try {
+            RepositoryManager manager = new RepositoryManagerBuilder(cacheDir, log, false, 60000, java.net.Proxy.NO_PROXY)
+                    .addRepository(remote)
+                    .staleWhileRevalidate(true)
+                    .buildRepository();
+            ModuleVersionQuery query = new ModuleVersionQuery("org.acme.stale", null, Type.JVM);
+
+            // the first lookup waits for the repository
+            ModuleVersionResult result = manager.completeVersions(query);
+            Assert.assertEquals(Collections.singleton("1.0"), result.getVersions().keySet());
+            Assert.assertEquals(1, calls.get());
+            // what we get is ours to change
+            result.getVersions().get("1.0").setDoc("changed");
+            result.getVersions().get("1.0").getAuthors().add("Someone");
+
+            // the next one gets the last known result, untouched, while it is refreshed in the background
+            versions.set(new String[]{"1.0", "2.0"});
+            result = manager.completeVersions(query);
+            Assert.assertEquals(Collections.singleton("1.0"), result.getVersions().keySet());
+            Assert.assertNull(result.getVersions().get("1.0").getDoc());
+            Assert.assertTrue(result.getVersions().get("1.0").getAuthors().isEmpty());
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (result.hasVersion("2.0") == false && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                result = manager.completeVersions(query);
+            }
+            Assert.assertEquals(new HashSet<>(Arrays.asList("1.0", "2.0")), result.getVersions().keySet());
+            Assert.assertTrue(calls.get() >= 2);
+        } finally {
+            IOUtils.deleteRecursively(cacheDir);
+        }
+    }
+}